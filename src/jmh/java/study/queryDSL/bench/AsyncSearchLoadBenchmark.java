@@ -0,0 +1,99 @@
+package study.queryDSL.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 클라이언트 clients 명이 한번에 검색 요청을 보낼때 동기 (/v3/members) vs 비동기 (/v3/members/async) 엔드포인트 처리량
+ * 한 op = clients 개의 요청을 동시에 보내고 모두 응답받기까지, 초당 요청 수 = ops/s * clients
+ * ok, rejected 보조 카운터 = 200 응답 수, 503 (bulkhead 초과) 응답 수
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AsyncSearchLoadBenchmark {
+
+    @Param({"/v3/members", "/v3/members/async"})
+    String path;
+
+    @Param({"1000"})
+    int clients;
+
+    @Param({"100"})
+    int tomcatThreads;
+
+    @Param({"10000"})
+    int members;
+
+    ConfigurableApplicationContext context;
+    ExecutorService clientExecutor;
+    HttpClient client;
+    String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWeb(
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--server.tomcat.accept-count=" + clients,
+                "--member.count-index.enabled=false");
+        BenchmarkApplication.seed(context, members, 100);
+        baseUrl = "http://localhost:" + BenchmarkApplication.port(context);
+        clientExecutor = Executors.newFixedThreadPool(8);
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        clientExecutor.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+        public long ok;
+        public long rejected;
+    }
+
+    @Benchmark
+    public void concurrentClients(Responses responses) {
+        List<CompletableFuture<HttpResponse<Void>>> calls = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            int ageGoe = ThreadLocalRandom.current().nextInt(60);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(
+                    baseUrl + path + "?ageGoe=" + ageGoe + "&ageLoe=" + (ageGoe + 30) + "&page=3&size=20"))
+                    .build();
+            calls.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> call : calls) {
+            int status = call.join().statusCode();
+            if (status == 200) {
+                responses.ok++;
+            } else if (status == 503) {
+                responses.rejected++;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package study.queryDSL.bench;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.QueryDslApplication;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트, 인메모리 H2 에 회원/팀을 채워서 띄운다
+ */
+public final class BenchmarkApplication {
+
+    private static final String[] DEFAULT_ARGS = {
+            "--spring.profiles.active=bench", // local 프로필의 initMember 가 돌지 않게
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0", // 같은 쿼리 결과를 재사용하지 않게
+            "--spring.jpa.properties.hibernate.format_sql=false",
+            "--spring.jpa.properties.hibernate.use_sql_comments=false",
+            "--decorator.datasource.p6spy.enable-logging=false",
+            "--logging.level.root=warn",
+            "--logging.level.org.hibernate.SQL=warn"
+    };
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... extraArgs) {
+        return run(WebApplicationType.NONE, extraArgs);
+    }
+
+    /**
+     * 임의의 포트로 톰캣까지 띄운다, 포트는 {@link #port} 로
+     */
+    public static ConfigurableApplicationContext startWeb(String... extraArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(extraArgs));
+        args.add(0, "--server.port=0");
+        return run(WebApplicationType.SERVLET, args.toArray(new String[0]));
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static ConfigurableApplicationContext run(WebApplicationType type, String... extraArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(DEFAULT_ARGS));
+        args.addAll(Arrays.asList(extraArgs)); // 뒤에 온 값이 우선
+        return new SpringApplicationBuilder(QueryDslApplication.class)
+                .web(type)
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * teamCount 개의 팀 ("team0" ~) 에 members 명을 나이 0 ~ 99 로 고르게 나눠 넣는다
+     */
+    public static void seed(ConfigurableApplicationContext context, int members, int teamCount) {
+        EntityManager em = context.getBean(EntityManager.class);
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        tx.executeWithoutResult(status -> {
+            List<Team> teams = new ArrayList<>(teamCount);
+            for (int i = 0; i < teamCount; i++) {
+                Team team = new Team("team" + i);
+                em.persist(team);
+                teams.add(team);
+            }
+            for (int i = 0; i < members; i++) {
+                em.persist(new Member("member" + i, i % 100, teams.get(i % teamCount)));
+                if (i % 1000 == 999) {
+                    em.flush();
+                    em.clear();
+                    teams.replaceAll(team -> em.getReference(Team.class, team.getId()));
+                }
+            }
+        });
+    }
+}
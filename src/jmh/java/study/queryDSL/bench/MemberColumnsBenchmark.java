@@ -0,0 +1,85 @@
+package study.queryDSL.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamColumns;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.repository.MemberRepositoryImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 큰 검색 결과 한번을 dto 목록으로 받아 JSON 으로 쓰기 vs 열 단위 (MemberTeamColumns) 로 받아 JSON 으로 쓰기
+ * gc 프로파일러 (-prof gc) 의 gc.alloc.rate.norm = 호출당 할당량, 보조 카운터 payloadBytes = 응답 본문 크기
+ * 검색 캐시와 인메모리 사본은 끄고 매번 DB 를 읽는다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberColumnsBenchmark {
+
+    @Param({"10000"})
+    int members;
+
+    @Param({"100"})
+    int teams;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate readOnly;
+    MemberRepositoryImpl memberRepositoryImpl;
+    ObjectMapper objectMapper;
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("--member.search-cache.enabled=false", "--member.read-model.enabled=false");
+        BenchmarkApplication.seed(context, members, teams);
+
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        memberRepositoryImpl = context.getBean(MemberRepositoryImpl.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+        public long payloadBytes; // 마지막 응답 크기, 측정 반복 수만큼 더해져 보고된다
+    }
+
+    @Benchmark
+    public byte[] dtoList(Payload payload) throws Exception {
+        List<MemberTeamDto> rows = readOnly.execute(status -> memberRepositoryImpl.search(condition));
+        byte[] body = objectMapper.writeValueAsBytes(rows);
+        payload.payloadBytes = body.length;
+        return body;
+    }
+
+    @Benchmark
+    public byte[] columns(Payload payload) throws Exception {
+        MemberTeamColumns rows = readOnly.execute(status -> memberRepositoryImpl.searchColumns(condition));
+        byte[] body = objectMapper.writeValueAsBytes(rows);
+        payload.payloadBytes = body.length;
+        return body;
+    }
+}
@@ -0,0 +1,114 @@
+package study.queryDSL.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.repository.MemberJpaRepository;
+import study.queryDSL.repository.MemberRepositoryImpl;
+import study.queryDSL.repository.MemberTestRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 레포지토리 검색 경로별 비용 비교, 짝마다 쿼리를 만드는 방식만 다르다
+ * - jpaSearch (조건 모양별 JPQL 템플릿) vs jpaSearchByBuilder (매번 BooleanBuilder 로 조립, 직렬화)
+ * - searchPageSimple (템플릿 + 동시 카운트 쿼리) vs searchPageComplex (카운트 인덱스) vs searchPageSimple2 (fetchResults)
+ * - applyPagination (템플릿 + 카운트 인덱스) vs applyPaginationComplex (Querydsl4RepositorySupport, 카운트 쿼리 따로)
+ * 검색 결과 캐시를 끄고 매번 DB 를 읽는다 - 켜두면 모두 캐시 적중 비용만 잰다
+ * Throughput = 처리량, SampleTime = 지연시간 분포 (p50, p99 ...), gc 프로파일러 = 호출당 할당량
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberSearchBenchmark {
+
+    @Param({"10000"})
+    int members;
+
+    @Param({"100"})
+    int teams;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate readOnly;
+    MemberJpaRepository memberJpaRepository;
+    MemberRepositoryImpl memberRepositoryImpl;
+    MemberTestRepository memberTestRepository;
+
+    MemberSearchCondition condition;
+    Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("--member.search-cache.enabled=false");
+        BenchmarkApplication.seed(context, members, teams);
+
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepositoryImpl = context.getBean(MemberRepositoryImpl.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(60);
+        pageable = PageRequest.of(1, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> jpaSearch() {
+        return readOnly.execute(status -> memberJpaRepository.search(condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> jpaSearchByBuilder() {
+        return readOnly.execute(status -> memberJpaRepository.searchByBuilder(condition));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return readOnly.execute(status -> memberRepositoryImpl.searchPageSimple(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return readOnly.execute(status -> memberRepositoryImpl.searchPageComplex(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple2() {
+        return readOnly.execute(status -> memberRepositoryImpl.searchPageSimple2(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination() {
+        return readOnly.execute(status -> memberTestRepository.applyPagination(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<Member> applyPaginationComplex() {
+        return readOnly.execute(status -> memberTestRepository.applyPaginationComplex(condition, pageable));
+    }
+}
@@ -0,0 +1,91 @@
+package study.queryDSL.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.repository.MemberRepositoryImpl;
+import study.queryDSL.repository.MemberTestRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 카운트 쿼리를 컨텐츠 쿼리와 동시에 실행 (parallelCount=true) vs 순차 실행 의 페이지 조회 지연시간 (p50, p99)
+ * 카운트 인덱스는 꺼서 항상 카운트 쿼리가 나가게 한다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelCountBenchmark {
+
+    @Param({"true", "false"})
+    boolean parallelCount;
+
+    @Param({"100000"})
+    int members;
+
+    @Param({"100"})
+    int teams;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate readOnly;
+    MemberRepositoryImpl memberRepositoryImpl;
+    MemberTestRepository memberTestRepository;
+
+    MemberSearchCondition condition;
+    Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "--member.page.parallel-count.enabled=" + parallelCount,
+                "--member.count-index.enabled=false");
+        BenchmarkApplication.seed(context, members, teams);
+
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        memberRepositoryImpl = context.getBean(MemberRepositoryImpl.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(60);
+        pageable = PageRequest.of(10, 20, Sort.by(Sort.Direction.DESC, "age")); // 정렬이 있으면 컨텐츠 쿼리도 전체를 읽는다
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return readOnly.execute(status -> memberRepositoryImpl.searchPageSimple(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return readOnly.execute(status -> memberRepositoryImpl.searchPageComplex(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<Member> applyPaginationComplex() {
+        return readOnly.execute(status -> memberTestRepository.applyPaginationComplex(condition, pageable));
+    }
+}
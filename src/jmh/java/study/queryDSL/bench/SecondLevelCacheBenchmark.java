@@ -0,0 +1,97 @@
+package study.queryDSL.bench;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.entity.Member;
+import study.queryDSL.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 2차 캐시 on/off 에 따른 findById, 팀 지연로딩 비용
+ * statements 보조 카운터 = 호출당 DB 왕복 수 (PreparedStatement 수)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SecondLevelCacheBenchmark {
+
+    @Param({"true", "false"})
+    boolean secondLevelCache;
+
+    @Param({"10000"})
+    int members;
+
+    @Param({"100"})
+    int teams;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate readOnly;
+    MemberJpaRepository memberJpaRepository;
+    Statistics statistics;
+    List<Long> memberIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache);
+        BenchmarkApplication.seed(context, members, teams);
+
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        memberIds = readOnly.execute(status -> context.getBean(EntityManager.class)
+                .createQuery("select m.id from Member m", Long.class)
+                .getResultList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long statements;
+    }
+
+    @Benchmark
+    public Member findById(RoundTrips roundTrips) {
+        long before = statistics.getPrepareStatementCount();
+        Member member = readOnly.execute(status -> memberJpaRepository.findById(randomId()).get());
+        roundTrips.statements += statistics.getPrepareStatementCount() - before;
+        return member;
+    }
+
+    @Benchmark
+    public String findByIdWithTeam(RoundTrips roundTrips) {
+        long before = statistics.getPrepareStatementCount();
+        String teamName = readOnly.execute(status -> memberJpaRepository.findById(randomId()).get().getTeam().getName());
+        roundTrips.statements += statistics.getPrepareStatementCount() - before;
+        return teamName;
+    }
+
+    private Long randomId() {
+        return memberIds.get(ThreadLocalRandom.current().nextInt(memberIds.size()));
+    }
+}
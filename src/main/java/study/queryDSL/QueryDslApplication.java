@@ -5,11 +5,13 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import study.queryDSL.entity.Member;
 
 import javax.persistence.EntityManager;
 
 @SpringBootApplication
+@EnableScheduling // TeamAggregateStore 주기적 맞춰보기
 public class QueryDslApplication {
 
 	public static void main(String[] args) {
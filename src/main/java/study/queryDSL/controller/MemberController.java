@@ -1,16 +1,47 @@
 package study.queryDSL.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.queryDSL.dto.BulkResult;
+import study.queryDSL.dto.MemberCreateDto;
+import study.queryDSL.dto.MemberKeysetOrder;
+import study.queryDSL.dto.MemberKeysetPage;
 import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamColumns;
+import study.queryDSL.dto.MemberTeamColumnsPage;
 import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.repository.MemberAsyncRepository;
+import study.queryDSL.repository.MemberBulkRepository;
 import study.queryDSL.repository.MemberJpaRepository;
 import study.queryDSL.repository.MemberRepository;
+import study.queryDSL.repository.support.BulkheadFullException;
+import study.queryDSL.repository.support.CountStrategy;
+import study.queryDSL.repository.support.CountedPage;
+import study.queryDSL.repository.support.InvalidCursorException;
+import study.queryDSL.repository.support.MemberDataVersion;
+import study.queryDSL.repository.support.MemberSearchCache;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
@@ -18,20 +49,153 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberBulkRepository memberBulkRepository;
+    private final MemberAsyncRepository memberAsyncRepository;
+    private final ObjectMapper objectMapper;
+    private final MemberDataVersion dataVersion;
 
+    private static final int EXPORT_FLUSH_INTERVAL = 500; // 이 행 수마다 응답을 밀어낸다
+
+    // engine=memory 면 DB 대신 인메모리 사본에서 같은 조건으로 (결과는 회원 id 순), jpa 나 memory 가 아니면 400
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) { // 파라미터값은 자동 바인딩
-        return memberJpaRepository.search(condition);
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, // 파라미터값은 자동 바인딩
+                                              @RequestParam(defaultValue = "jpa") String engine) {
+        if ("memory".equalsIgnoreCase(engine)) {
+            return memberRepository.searchInMemory(condition);
+        }
+        if ("jpa".equalsIgnoreCase(engine)) {
+            return memberJpaRepository.search(condition);
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "engine must be jpa or memory");
+    }
+
+    // v1 과 같은 검색이지만 결과를 리스트로 모으지 않고 읽는 대로 응답에 쓴다, Accept 로 ndjson / json 배열 선택
+    @GetMapping(value = "/v1/members/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportMemberNdjson(MemberSearchCondition condition) {
+        return out -> export(condition, out, false);
+    }
+
+    @GetMapping(value = "/v1/members/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody exportMemberJson(MemberSearchCondition condition) {
+        return out -> export(condition, out, true);
+    }
+
+    private void export(MemberSearchCondition condition, OutputStream out, boolean asArray) throws IOException {
+        SequenceWriter writer = asArray
+                ? objectMapper.writerFor(MemberTeamDto.class).writeValuesAsArray(out)
+                : objectMapper.writerFor(MemberTeamDto.class).withRootValueSeparator("\n").writeValues(out);
+        try (writer) {
+            long[] written = {0};
+            memberJpaRepository.streamSearch(condition, dto -> {
+                try {
+                    writer.write(dto);
+                    if (++written[0] % EXPORT_FLUSH_INTERVAL == 0) {
+                        writer.flush(); // 클라이언트로 바로 흘려보내 서버에 쌓이지 않게
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // Accept: application/vnd.member.columns+json 이면 같은 검색을 열 단위 + 팀 사전으로 (MemberTeamColumns)
+    @GetMapping(value = "/v1/members", produces = MemberTeamColumns.MEDIA_TYPE)
+    public MemberTeamColumns searchMemberV1Columns(MemberSearchCondition condition) {
+        return memberRepository.searchColumns(condition);
+    }
+
+    @GetMapping(value = "/v2/members", produces = MemberTeamColumns.MEDIA_TYPE)
+    public MemberTeamColumnsPage searchMemberV2Columns(MemberSearchCondition condition, Pageable pageable,
+                                                       WebRequest request) {
+        if (notModified(request, MemberSearchCache.Key.of("v2:columns", condition, pageable))) {
+            return null;
+        }
+        return memberRepository.searchColumnsPage(condition, pageable);
     }
 
+    // If-None-Match 가 지금 데이터 버전의 ETag 와 같으면 쿼리도 직렬화도 없이 304
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) { // 파라미터값은 자동 바인딩
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable, // 파라미터값은 자동 바인딩
+                                              WebRequest request) {
+        if (notModified(request, MemberSearchCache.Key.of("v2", condition, pageable))) {
+            return null;
+        }
         return memberRepository.searchPageSimple(condition, pageable);
     }
 
+    // count=exact(기본) | capped | capped:500 | estimated | none, 응답의 countStrategy / totalExact 로 총 건수의 성격을 알린다
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) { // 파라미터값은 자동 바인딩
-        return memberRepository.searchPageComplex(condition, pageable);
+    public CountedPage<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable, // 파라미터값은 자동 바인딩
+                                                     @RequestParam(defaultValue = "exact") CountStrategy count,
+                                                     WebRequest request) {
+        if (notModified(request, MemberSearchCache.Key.of("v3:" + count, condition, pageable))) {
+            return null;
+        }
+        return memberRepository.searchPage(condition, pageable, count);
+    }
+
+    // checkNotModified 가 ETag 헤더를 쓰고, 맞으면 304 를 설정한다
+    private boolean notModified(WebRequest request, MemberSearchCache.Key key) {
+        String etag = dataVersion.etag(key);
+        return etag != null && request.checkNotModified(etag);
+    }
+
+    @GetMapping("/v4/members") // 키셋 페이징, 응답의 nextCursor 를 cursor 파라미터로 넘기면 다음 페이지
+    public MemberKeysetPage searchMemberV4(MemberSearchCondition condition,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "ID") MemberKeysetOrder order,
+                                           @RequestParam(defaultValue = "20") int size) {
+        // size 가 member.keyset.max-size 보다 크면 레포지토리에서 최대 크기로 줄인다
+        return memberRepository.searchKeyset(condition, order, cursor, positive(size));
+    }
+
+    @GetMapping("/v5/members") // 전체 개수 없이 hasNext 만 주는 페이징 (무한 스크롤), 카운트 쿼리가 나가지 않는다
+    public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchSlice(condition, pageable);
+    }
+
+    // v2 ~ v4 의 비동기 버전, 조회를 기다리는 동안 서블릿 스레드를 반납한다
+    @GetMapping("/v2/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV2Async(MemberSearchCondition condition, Pageable pageable) {
+        return memberAsyncRepository.searchPageSimple(condition, pageable);
+    }
+
+    @GetMapping("/v3/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV3Async(MemberSearchCondition condition, Pageable pageable) {
+        return memberAsyncRepository.searchPageComplex(condition, pageable);
+    }
+
+    @GetMapping("/v4/members/async")
+    public CompletableFuture<MemberKeysetPage> searchMemberV4Async(MemberSearchCondition condition,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "ID") MemberKeysetOrder order,
+                                                                   @RequestParam(defaultValue = "20") int size) {
+        return memberAsyncRepository.searchKeyset(condition, order, cursor, positive(size));
+    }
+
+    private static int positive(int size) {
+        if (size <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+        }
+        return size;
+    }
+
+    @PostMapping("/v1/members/bulk") // 대량 등록, 처리 건수와 초당 처리량을 돌려줌
+    public BulkResult bulkInsertMembers(@RequestBody List<MemberCreateDto> members) {
+        return memberBulkRepository.bulkInsert(members);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class) // 잘못된 cursor 는 400, 메시지에 토큰 값은 담지 않는다
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String invalidCursor(InvalidCursorException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(BulkheadFullException.class) // 동시 조회 한도 초과, 잠시 후 재시도
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String tooManyQueries(BulkheadFullException e) {
+        return e.getMessage();
     }
 
 }
@@ -0,0 +1,67 @@
+package study.queryDSL.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.queryDSL.dto.CacheRegionStatsDto;
+import study.queryDSL.dto.IndexAdviceDto;
+import study.queryDSL.dto.TeamStatsDto;
+import study.queryDSL.repository.MemberIndexAdvisor;
+import study.queryDSL.repository.support.TeamAggregateStore;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class StatisticsController {
+
+    private final EntityManagerFactory emf;
+    private final MemberIndexAdvisor indexAdvisor;
+    private final TeamAggregateStore teamAggregateStore;
+
+    @GetMapping("/v1/cache/stats") // 2차 캐시 영역별 적중/미스, hibernate.generate_statistics 가 켜져 있어야 집계됨
+    public List<CacheRegionStatsDto> secondLevelCacheStats() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        List<CacheRegionStatsDto> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+            result.add(new CacheRegionStatsDto(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount()));
+        }
+        result.add(new CacheRegionStatsDto("total", statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        return result;
+    }
+
+    @GetMapping("/v1/teams/stats") // 팀별 회원 수, 나이 합계/평균/최소/최대 - group by 없이 유지된 값
+    public List<TeamStatsDto> teamStats() {
+        return teamAggregateStore.teams();
+    }
+
+    @GetMapping("/v1/teams/{teamId}/stats")
+    public ResponseEntity<TeamStatsDto> teamStats(@PathVariable Long teamId) {
+        return ResponseEntity.of(teamAggregateStore.team(teamId));
+    }
+
+    @GetMapping(value = "/v1/teams/stats", params = "teamName") // 이름이 같은 팀들은 합쳐서 (groupBy(team.name))
+    public ResponseEntity<TeamStatsDto> teamStatsByName(@RequestParam String teamName) {
+        return ResponseEntity.of(teamAggregateStore.teamName(teamName));
+    }
+
+    @GetMapping("/v1/members/stats") // 팀 없는 회원 포함 전체
+    public TeamStatsDto memberStats() {
+        return teamAggregateStore.all();
+    }
+
+    @GetMapping("/v1/index/advice") // 검색 조건 모양 x 정렬별 EXPLAIN, 전체 스캔 여부 (H2)
+    public List<IndexAdviceDto> indexAdvice() {
+        return indexAdvisor.advise();
+    }
+}
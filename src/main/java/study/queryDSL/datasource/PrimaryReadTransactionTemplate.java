@@ -0,0 +1,28 @@
+package study.queryDSL.datasource;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 커밋된 데이터만 읽는 (REQUIRES_NEW, 읽기 전용) 트랜잭션, replica 가 있어도 항상 primary 에서 읽는다
+ * 커밋 이벤트로 이어서 갱신하는 인메모리 스냅샷 (카운트 인덱스, 읽기 모델, 팀 집계) 의 적재용
+ * 이벤트는 primary 의 커밋이므로 복제가 늦은 replica 에서 적재하면 그 차이가 이벤트로 메워지지 않고 계속 남는다
+ */
+public class PrimaryReadTransactionTemplate extends TransactionTemplate {
+
+    private static final long serialVersionUID = 1L;
+
+    public PrimaryReadTransactionTemplate(PlatformTransactionManager transactionManager) {
+        super(transactionManager);
+        setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        setReadOnly(true);
+    }
+
+    @Override
+    public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+        return ReplicaRoutingDataSource.forcePrimary(() -> super.execute(action));
+    }
+}
@@ -0,0 +1,59 @@
+package study.queryDSL.datasource;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 요청 하나 안에서 쓰기 후 읽기가 복제 지연으로 옛 값을 보지 않게, 쓰기 트랜잭션이 한번이라도 커넥션을 얻으면 이후 읽기도 primary 로
+ * 범위는 {@link ReadYourWritesFilter} 가 요청마다 열고 닫는다, 범위 밖 (배치, 테스트 등) 에서는 읽기 전용이면 항상 replica
+ * 조회를 다른 스레드로 넘기는 곳 (비동기 조회, 병렬 카운트, 병렬 벌크) 은 {@link #propagate} 로 같은 범위를 넘긴다
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<AtomicBoolean> WRITTEN = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static void begin() {
+        WRITTEN.set(new AtomicBoolean());
+    }
+
+    public static void end() {
+        WRITTEN.remove();
+    }
+
+    // 현재 범위에서 쓰기가 있었으면 읽기도 primary 로
+    public static boolean isSticky() {
+        AtomicBoolean written = WRITTEN.get();
+        return written != null && written.get();
+    }
+
+    static void markWritten() {
+        AtomicBoolean written = WRITTEN.get();
+        if (written != null) {
+            written.set(true);
+        }
+    }
+
+    // 지금 스레드의 범위를 task 를 실행하는 스레드에 넘긴다, 그 스레드에서의 쓰기도 같은 범위에 기록된다
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        AtomicBoolean written = WRITTEN.get();
+        if (written == null) {
+            return task;
+        }
+        return () -> {
+            AtomicBoolean previous = WRITTEN.get();
+            WRITTEN.set(written);
+            try {
+                return task.get();
+            } finally {
+                if (previous == null) {
+                    WRITTEN.remove();
+                } else {
+                    WRITTEN.set(previous);
+                }
+            }
+        };
+    }
+}
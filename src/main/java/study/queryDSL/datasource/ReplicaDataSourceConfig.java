@@ -0,0 +1,84 @@
+package study.queryDSL.datasource;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * member.datasource.replica.jdbc-url 이 있을때만 읽기/쓰기 커넥션을 나눈다, 없으면 spring.datasource 하나를 그대로 쓴다
+ * - primary : spring.datasource (+ spring.datasource.hikari), 스키마 생성과 쓰기
+ * - replica : member.datasource.replica (HikariDataSource 속성 jdbc-url, username, password ...), 읽기 전용 트랜잭션
+ * 스키마와 데이터를 replica 로 옮기는 것은 DB 복제가 맡는다
+ */
+@Configuration
+@ConditionalOnProperty("member.datasource.replica.jdbc-url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("member.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class).build();
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+                                 ObjectProvider<DataSourceDecoratorProperties> decoratorProperties) {
+        // p6spy 는 커넥션을 얻자마자 메타데이터를 읽어 LazyConnectionDataSourceProxy 가 트랜잭션 시작 전에 DB 를 고르게 된다
+        // 라우팅 프록시는 감싸지 않고 그 아래 primary, replica 풀을 각각 감싼다
+        decoratorProperties.ifAvailable(properties -> {
+            List<String> excludeBeans = new ArrayList<>(properties.getExcludeBeans());
+            excludeBeans.add("dataSource");
+            properties.setExcludeBeans(excludeBeans);
+        });
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Route.PRIMARY, primaryDataSource,
+                ReplicaRoutingDataSource.Route.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // 스프링 기본값은 open-in-view 동안 처음 얻은 커넥션을 쥐고 있어, 먼저 실행된 트랜잭션이 고른 DB 를 요청 끝까지 쓰게 된다
+    @Bean
+    HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1); // 다른 필터에서의 조회도 같은 범위에
+        return registration;
+    }
+}
@@ -0,0 +1,48 @@
+package study.queryDSL.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * 읽기 전용 트랜잭션은 replica, 그 외 (쓰기 트랜잭션, 트랜잭션 밖) 는 primary 로 커넥션을 얻는다
+ * 트랜잭션의 readOnly 는 커넥션을 얻은 뒤에 정해지므로 LazyConnectionDataSourceProxy 로 감싸 첫 쿼리 시점에 고르게 한다
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {PRIMARY, REPLICA}
+
+    // PrimaryReadTransactionTemplate 안에서 얻는 커넥션은 읽기 전용이어도 primary
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+
+    public static Route currentRoute() {
+        if (FORCE_PRIMARY.get() != null) {
+            return Route.PRIMARY; // 쓰기가 아니므로 read-your-writes 범위에는 기록하지 않는다
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return ReadYourWrites.isSticky() ? Route.PRIMARY : Route.REPLICA;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            ReadYourWrites.markWritten(); // 실제로 쓰지 않았더라도 쓰기 트랜잭션이면 이후 읽기는 primary
+        }
+        return Route.PRIMARY;
+    }
+
+    static <T> T forcePrimary(Supplier<T> task) {
+        if (FORCE_PRIMARY.get() != null) {
+            return task.get();
+        }
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return task.get();
+        } finally {
+            FORCE_PRIMARY.remove();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package study.queryDSL.dto;
+
+import lombok.Data;
+
+@Data
+public class BulkResult {
+    private long rows; // 처리(insert / update / delete) 된 행 수
+    private int chunks; // 커밋된 트랜잭션 수
+    private long elapsedMillis;
+    private double rowsPerSecond;
+
+    public BulkResult(long rows, int chunks, long elapsedNanos) {
+        this.rows = rows;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedNanos / 1_000_000;
+        this.rowsPerSecond = elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+}
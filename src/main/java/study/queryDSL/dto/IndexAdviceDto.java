@@ -0,0 +1,20 @@
+package study.queryDSL.dto;
+
+import lombok.Data;
+
+@Data
+public class IndexAdviceDto {
+    private String shape; // MemberSearchTemplates 의 조건 모양 ex) "U-G-"
+    private String sort;
+    private String access; // 회원 테이블을 읽는 방법, 플랜의 인덱스 주석 ex) "PUBLIC.IDX_MEMBER_USERNAME: USERNAME = ?1"
+    private boolean fullScan;
+    private String plan;
+
+    public IndexAdviceDto(String shape, String sort, String access, boolean fullScan, String plan) {
+        this.shape = shape;
+        this.sort = sort;
+        this.access = access;
+        this.fullScan = fullScan;
+        this.plan = plan;
+    }
+}
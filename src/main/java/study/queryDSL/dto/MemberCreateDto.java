@@ -0,0 +1,14 @@
+package study.queryDSL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MemberCreateDto {
+    private String username;
+    private int age;
+    private Long teamId; // 팀 없으면 null
+}
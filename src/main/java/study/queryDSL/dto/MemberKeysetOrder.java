@@ -0,0 +1,7 @@
+package study.queryDSL.dto;
+
+public enum MemberKeysetOrder {
+    // 키셋 페이징에서 지원하는 정렬, 항상 member_id 를 마지막 정렬키로 두어 순서를 고정
+    ID,
+    AGE_ID
+}
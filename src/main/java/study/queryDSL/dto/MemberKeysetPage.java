@@ -0,0 +1,18 @@
+package study.queryDSL.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MemberKeysetPage {
+    private List<MemberTeamDto> content;
+    private String nextCursor; // 다음 페이지 요청시 그대로 돌려주는 토큰, 마지막 페이지면 null
+    private boolean hasNext;
+
+    public MemberKeysetPage(List<MemberTeamDto> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
@@ -0,0 +1,126 @@
+package study.queryDSL.dto;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MemberTeamDto 목록을 열 단위로 담은 것 - 행마다 객체, Long 박싱, 같은 팀 이름 반복이 없다
+ * 팀은 사전 (teamIds, teamNames) 에 한번씩만 두고 행에는 사전 번호 (teamRefs, 팀 없으면 -1) 만 둔다
+ * JSON 도 이 모양 그대로 - 열마다 배열 하나라 행마다 키 이름이 반복되지 않는다
+ */
+@Getter
+public class MemberTeamColumns {
+
+    public static final String MEDIA_TYPE = "application/vnd.member.columns+json";
+
+    private final int size;
+    private final long[] memberIds;
+    private final String[] usernames;
+    private final int[] ages;
+    private final int[] teamRefs;
+    private final long[] teamIds;
+    private final String[] teamNames;
+
+    private MemberTeamColumns(int size, long[] memberIds, String[] usernames, int[] ages, int[] teamRefs,
+                              long[] teamIds, String[] teamNames) {
+        this.size = size;
+        this.memberIds = memberIds;
+        this.usernames = usernames;
+        this.ages = ages;
+        this.teamRefs = teamRefs;
+        this.teamIds = teamIds;
+        this.teamNames = teamNames;
+    }
+
+    public static MemberTeamColumns of(List<MemberTeamDto> rows) {
+        Builder builder = new Builder(rows.size());
+        for (MemberTeamDto row : rows) {
+            builder.add(row.getMemberId(), row.getUsername(), row.getAge(), row.getTeamId(), row.getTeamName());
+        }
+        return builder.build();
+    }
+
+    public MemberTeamDto get(int row) {
+        int ref = teamRefs[row];
+        return new MemberTeamDto(memberIds[row], usernames[row], ages[row],
+                ref < 0 ? null : teamIds[ref], ref < 0 ? null : teamNames[ref]);
+    }
+
+    public List<MemberTeamDto> toDtos() {
+        List<MemberTeamDto> rows = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            rows.add(get(row));
+        }
+        return rows;
+    }
+
+    /**
+     * 행을 하나씩 받아 열 배열에 채운다, 배열은 모자라면 두배로
+     */
+    public static class Builder {
+        private int size;
+        private long[] memberIds;
+        private String[] usernames;
+        private int[] ages;
+        private int[] teamRefs;
+        private final Map<Long, Integer> teamRefById = new HashMap<>();
+        private long[] teamIds = new long[8];
+        private String[] teamNames = new String[8];
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int capacity) {
+            int initial = Math.max(capacity, 1);
+            memberIds = new long[initial];
+            usernames = new String[initial];
+            ages = new int[initial];
+            teamRefs = new int[initial];
+        }
+
+        public Builder add(long memberId, String username, int age, Long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int grown = size * 2;
+                memberIds = Arrays.copyOf(memberIds, grown);
+                usernames = Arrays.copyOf(usernames, grown);
+                ages = Arrays.copyOf(ages, grown);
+                teamRefs = Arrays.copyOf(teamRefs, grown);
+            }
+            memberIds[size] = memberId;
+            usernames[size] = username;
+            ages[size] = age;
+            teamRefs[size] = teamId == null ? -1 : teamRef(teamId, teamName);
+            size++;
+            return this;
+        }
+
+        private int teamRef(Long teamId, String teamName) {
+            Integer ref = teamRefById.get(teamId);
+            if (ref != null) {
+                return ref;
+            }
+            int next = teamRefById.size();
+            if (next == teamIds.length) {
+                teamIds = Arrays.copyOf(teamIds, next * 2);
+                teamNames = Arrays.copyOf(teamNames, next * 2);
+            }
+            teamIds[next] = teamId;
+            teamNames[next] = teamName;
+            teamRefById.put(teamId, next);
+            return next;
+        }
+
+        public MemberTeamColumns build() {
+            int teams = teamRefById.size();
+            return new MemberTeamColumns(size,
+                    Arrays.copyOf(memberIds, size), Arrays.copyOf(usernames, size), Arrays.copyOf(ages, size),
+                    Arrays.copyOf(teamRefs, size), Arrays.copyOf(teamIds, teams), Arrays.copyOf(teamNames, teams));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package study.queryDSL.dto;
+
+import lombok.Getter;
+import org.springframework.data.domain.Pageable;
+
+// 열 단위 검색 결과 한 페이지, 페이지 정보는 Page 의 JSON 과 같은 이름
+@Getter
+public class MemberTeamColumnsPage {
+    private final MemberTeamColumns content;
+    private final int number;
+    private final int size;
+    private final long totalElements;
+    private final int totalPages;
+
+    public MemberTeamColumnsPage(MemberTeamColumns content, Pageable pageable, long totalElements) {
+        this.content = content;
+        this.number = pageable.isPaged() ? pageable.getPageNumber() : 0;
+        this.size = pageable.isPaged() ? pageable.getPageSize() : content.getSize();
+        this.totalElements = totalElements;
+        this.totalPages = size == 0 ? 1 : (int) Math.ceil((double) totalElements / size);
+    }
+}
@@ -0,0 +1,25 @@
+package study.queryDSL.dto;
+
+import lombok.Data;
+
+// 팀 하나의 회원 수, 나이 합계/평균/최소/최대 - 회원이 없으면 avg, min, max 는 null (SQL 집계와 같다)
+@Data
+public class TeamStatsDto {
+    private Long teamId; // 팀 없는 회원 전체는 null
+    private String teamName;
+    private long count;
+    private long ageSum;
+    private Double ageAvg;
+    private Integer ageMin;
+    private Integer ageMax;
+
+    public TeamStatsDto(Long teamId, String teamName, long count, long ageSum, Integer ageMin, Integer ageMax) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.count = count;
+        this.ageSum = ageSum;
+        this.ageAvg = count == 0 ? null : (double) ageSum / count;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+    }
+}
@@ -1,17 +1,27 @@
 package study.queryDSL.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = { // 검색 조건 모양별 인덱스, 회귀는 MemberIndexAdvisorTest 가 EXPLAIN 으로 잡는다
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age_username", columnList = "age desc, username asc"), // ageGoe/ageLoe 범위 + age desc, username asc 정렬
+        @Index(name = "idx_member_team_age", columnList = "team_id, age") // 팀 id 조건 + 나이 범위
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // 2차 캐시, 벌크 update/delete 시 하이버네이트가 영역을 비운다
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age" } ) // toString의 롬복으로 특정 필드만 지정해서 생성, 양방향 연관관계는 하면 무한루프 가능
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50) // 대량 insert 시 시퀀스 호출을 50건에 한번으로
     @Column(name = "member_id")
     private Long id;
 
@@ -39,6 +49,14 @@ public class Member {
     }
 
 
+    // 대량 insert 용 - team.getMembers() 에 추가하지 않는다
+    // 팀 프록시를 초기화하지 않고, 영속성 컨텍스트를 비워도 팀 컬렉션에 회원이 계속 쌓이지 않게
+    public static Member withoutInverse(String username, int age, Team team) {
+        Member member = new Member(username, age);
+        member.team = team;
+        return member;
+    }
+
     public Member(String username, int age) {
         this(username, age, null); // 자신의 생성자를 호출하는 생성자...
     }
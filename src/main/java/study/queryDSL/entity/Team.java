@@ -1,12 +1,18 @@
 package study.queryDSL.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name")) // TeamIdResolver 의 이름 -> id 조회
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // 2차 캐시, 벌크 update/delete 시 하이버네이트가 영역을 비운다
+@BatchSize(size = 100) // Member.team 프록시 하나를 초기화할때 영속성 컨텍스트의 다른 Team 프록시도 in (...) 한번으로 같이 읽는다
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -20,6 +26,7 @@ public class Team {
     private String name;
 
     @OneToMany(mappedBy = "team")
+    @BatchSize(size = 100) // 초기화 안된 다른 팀의 members 컬렉션도 같이 읽는다
     private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
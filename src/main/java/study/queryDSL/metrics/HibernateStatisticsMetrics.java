@@ -0,0 +1,72 @@
+package study.queryDSL.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 하이버네이트 Statistics 를 메트릭으로 노출, hibernate.generate_statistics 가 켜져 있어야 집계됨
+ * 값은 스크랩할 때 Statistics 에서 바로 읽는다
+ */
+@Component
+public class HibernateStatisticsMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+
+    public HibernateStatisticsMetrics(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // 쿼리 플랜 캐시 - JPQL -> SQL 번역 결과 재사용
+        counter(registry, "hibernate.query.plan.cache", "result", "hit", Statistics::getQueryPlanCacheHitCount);
+        counter(registry, "hibernate.query.plan.cache", "result", "miss", Statistics::getQueryPlanCacheMissCount);
+        Gauge.builder("hibernate.query.plan.cache.hit.ratio", statistics, HibernateStatisticsMetrics::queryPlanCacheHitRatio)
+                .description("query plan cache hits / (hits + misses) since startup")
+                .register(registry);
+
+        // load 는 영속성 컨텍스트에 올라온 엔티티 수, fetch 는 지연 로딩/연관관계로 추가 조회된 수 (N+1 의 신호)
+        counter(registry, "hibernate.entities", "operation", "load", Statistics::getEntityLoadCount);
+        counter(registry, "hibernate.entities", "operation", "fetch", Statistics::getEntityFetchCount);
+        counter(registry, "hibernate.entities", "operation", "insert", Statistics::getEntityInsertCount);
+        counter(registry, "hibernate.entities", "operation", "update", Statistics::getEntityUpdateCount);
+        counter(registry, "hibernate.entities", "operation", "delete", Statistics::getEntityDeleteCount);
+        counter(registry, "hibernate.collections", "operation", "load", Statistics::getCollectionLoadCount);
+        counter(registry, "hibernate.collections", "operation", "fetch", Statistics::getCollectionFetchCount);
+
+        FunctionCounter.builder("hibernate.statements.prepared", statistics, Statistics::getPrepareStatementCount)
+                .register(registry);
+        FunctionCounter.builder("hibernate.query.executions", statistics, Statistics::getQueryExecutionCount)
+                .register(registry);
+        TimeGauge.builder("hibernate.query.executions.max", statistics, TimeUnit.MILLISECONDS,
+                        Statistics::getQueryExecutionMaxTime)
+                .register(registry);
+
+        counter(registry, "hibernate.second.level.cache", "result", "hit", Statistics::getSecondLevelCacheHitCount);
+        counter(registry, "hibernate.second.level.cache", "result", "miss", Statistics::getSecondLevelCacheMissCount);
+        counter(registry, "hibernate.second.level.cache", "result", "put", Statistics::getSecondLevelCachePutCount);
+    }
+
+    private void counter(MeterRegistry registry, String name, String tagKey, String tagValue,
+                         ToDoubleFunction<Statistics> count) {
+        FunctionCounter.builder(name, statistics, count)
+                .tag(tagKey, tagValue)
+                .register(registry);
+    }
+
+    static double queryPlanCacheHitRatio(Statistics statistics) {
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long total = hits + statistics.getQueryPlanCacheMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,50 @@
+package study.queryDSL.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import study.queryDSL.repository.support.MemberSearchCache;
+
+/**
+ * 검색 결과 캐시 적중률, 밀려난 (용량 / 만료) 항목 수, 변경으로 지운 항목 수, 현재 크기
+ */
+@Component
+public class MemberSearchCacheMetrics implements MeterBinder {
+
+    private final MemberSearchCache cache;
+
+    public MemberSearchCacheMetrics(MemberSearchCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.cache", cache, MemberSearchCache::getHits)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache", cache, MemberSearchCache::getMisses)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("member.search.cache.hit.ratio", cache, MemberSearchCache::hitRatio)
+                .description("search cache hits / (hits + misses) since startup")
+                .register(registry);
+
+        FunctionCounter.builder("member.search.cache.evictions", cache, MemberSearchCache::getEvictions)
+                .tag("cause", "size")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache.evictions", cache, MemberSearchCache::getExpirations)
+                .tag("cause", "expired")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache.invalidations", cache, MemberSearchCache::getInvalidations)
+                .description("entries removed because a committed change could affect them")
+                .register(registry);
+
+        Gauge.builder("member.search.cache.size", cache, MemberSearchCache::size)
+                .register(registry);
+        Gauge.builder("member.search.cache.bytes", cache, MemberSearchCache::bytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
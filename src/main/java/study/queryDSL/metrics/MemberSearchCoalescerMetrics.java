@@ -0,0 +1,36 @@
+package study.queryDSL.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import study.queryDSL.repository.support.MemberSearchCoalescer;
+
+/**
+ * 동시에 들어온 같은 검색 중 DB 에 간 수 (executed), 다른 실행 결과를 나눠 받은 수 (deduplicated), 기다리다 직접 실행한 수
+ */
+@Component
+public class MemberSearchCoalescerMetrics implements MeterBinder {
+
+    private final MemberSearchCoalescer coalescer;
+
+    public MemberSearchCoalescerMetrics(MemberSearchCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.coalescing", coalescer, MemberSearchCoalescer::getExecutions)
+                .tag("result", "executed")
+                .register(registry);
+        FunctionCounter.builder("member.search.coalescing", coalescer, MemberSearchCoalescer::getDeduplicated)
+                .tag("result", "deduplicated")
+                .register(registry);
+        FunctionCounter.builder("member.search.coalescing.timeouts", coalescer, MemberSearchCoalescer::getTimeouts)
+                .description("callers that stopped waiting for a shared execution and ran the search themselves")
+                .register(registry);
+        Gauge.builder("member.search.coalescing.in.flight", coalescer, MemberSearchCoalescer::inFlight)
+                .register(registry);
+    }
+}
@@ -0,0 +1,174 @@
+package study.queryDSL.metrics;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 지연 로딩 (프록시 초기화, 컬렉션 초기화) 을 하이버네이트 이벤트로 받아 현재 {@link NPlusOneScope} 에 센다
+ * 같은 연관관계 경로가 lazy-load-threshold 번을 넘게 초기화되면 N+1 로 보고 경로와 호출 위치를 로그로 남기거나 예외를 던진다
+ *
+ * 범위
+ * - 웹 요청: {@link NPlusOneFilter}
+ * - 그 밖에 열린 범위가 없으면 트랜잭션 (첫 지연 로딩 부터 커밋/롤백 까지)
+ * - 테스트: NPlusOneExtension 이 테스트 메서드마다 연다
+ * 이미 영속성 컨텍스트에 있는 (배치 페치로 같이 읽힌) 엔티티의 프록시 초기화는 세지 않는다
+ * Team 은 2차 캐시 대상이라 프록시 초기화가 SQL 없이 끝날수 있지만 지연 로딩 횟수로는 센다
+ */
+@Component
+@SuppressWarnings("serial") // 하이버네이트 리스너 인터페이스가 Serializable 일 뿐, 스프링 빈이라 직렬화하지 않는다
+public class NPlusOneDetector implements LoadEventListener, InitializeCollectionEventListener {
+
+    public enum Action {
+        LOG, THROW
+    }
+
+    private static final String PACKAGE = "study.queryDSL.";
+
+    private final ThreadLocal<NPlusOneScope> current = new ThreadLocal<>();
+    private final Map<String, String> proxyPaths = new HashMap<>(); // 엔티티 이름 -> 그 엔티티를 가리키는 to-one 연관관계
+    private final EntityManagerFactory emf;
+    private final boolean enabled;
+    private final int lazyLoadThreshold;
+    private final int statementThreshold;
+    private final Action action;
+
+    public NPlusOneDetector(EntityManagerFactory emf,
+                            @Value("${member.n-plus-one.enabled:true}") boolean enabled,
+                            @Value("${member.n-plus-one.lazy-load-threshold:10}") int lazyLoadThreshold,
+                            @Value("${member.n-plus-one.statement-threshold:100}") int statementThreshold,
+                            @Value("${member.n-plus-one.action:LOG}") Action action) {
+        this.emf = emf;
+        this.enabled = enabled;
+        this.lazyLoadThreshold = lazyLoadThreshold;
+        this.statementThreshold = statementThreshold;
+        this.action = action;
+    }
+
+    @PostConstruct
+    public void register() {
+        // 프록시 초기화 이벤트는 대상 엔티티만 알려주므로 어느 연관관계로 왔는지는 메타모델에서 찾는다 (Team <- Member.team)
+        Map<String, StringJoiner> paths = new HashMap<>();
+        for (EntityType<?> owner : emf.getMetamodel().getEntities()) {
+            for (SingularAttribute<?, ?> attribute : owner.getSingularAttributes()) {
+                if (attribute.isAssociation()) {
+                    paths.computeIfAbsent(attribute.getJavaType().getName(), key -> new StringJoiner("|"))
+                            .add(owner.getName() + "." + attribute.getName());
+                }
+            }
+        }
+        paths.forEach((entityName, path) -> proxyPaths.put(entityName, path.toString()));
+
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.prependListeners(EventType.LOAD, this); // 기본 리스너가 읽기 전에 영속성 컨텍스트에 있는지 본다
+        registry.appendListeners(EventType.INIT_COLLECTION, this);
+    }
+
+    /**
+     * 설정값 (member.n-plus-one.*) 으로 범위를 연다
+     */
+    public NPlusOneScope open(String name) {
+        return open(name, lazyLoadThreshold, statementThreshold, action);
+    }
+
+    /**
+     * statementThreshold 가 0 이하면 SQL 수는 보지 않는다
+     */
+    public NPlusOneScope open(String name, int lazyLoadThreshold, int statementThreshold, Action action) {
+        return new NPlusOneScope(name, lazyLoadThreshold, statementThreshold, action, current);
+    }
+
+    public NPlusOneScope currentScope() {
+        return current.get();
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+        if (loadType == LoadEventListener.IMMEDIATE_LOAD && !inPersistenceContext(event)) { // 프록시 초기화
+            String entityName = event.getEntityClassName();
+            lazyLoaded(proxyPaths.getOrDefault(entityName, simpleName(entityName)));
+        }
+    }
+
+    // 배치 페치 / preload 로 이미 읽어둔 엔티티는 프록시를 초기화해도 조회가 일어나지 않는다
+    private static boolean inPersistenceContext(LoadEvent event) {
+        EventSource session = event.getSession();
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(event.getEntityClassName());
+        EntityKey key = session.generateEntityKey(event.getEntityId(), persister);
+        return session.getPersistenceContextInternal().getEntity(key) != null;
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+        String role = event.getCollection().getRole(); // study.queryDSL.entity.Team.members
+        String owner = role.substring(0, role.lastIndexOf('.'));
+        lazyLoaded(simpleName(owner) + role.substring(owner.length()));
+    }
+
+    private void lazyLoaded(String path) {
+        if (!enabled) {
+            return;
+        }
+        NPlusOneScope scope = current.get();
+        if (scope == null) {
+            scope = openTransactionScope();
+            if (scope == null) {
+                return;
+            }
+        }
+        scope.lazyLoaded(path);
+    }
+
+    private NPlusOneScope openTransactionScope() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        NPlusOneScope scope = open("transaction " + TransactionSynchronizationManager.getCurrentTransactionName());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                scope.close();
+            }
+        });
+        return scope;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    // 지연 로딩을 일으킨 이 프로젝트 코드의 위치, 엔티티 프록시와 CGLIB 프록시는 건너뛴다
+    static String callSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(PACKAGE)
+                        && !frame.getClassName().equals(NPlusOneDetector.class.getName())
+                        && !frame.getClassName().equals(NPlusOneScope.class.getName())
+                        && !frame.getClassName().contains("$"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .orElse("unknown"));
+    }
+}
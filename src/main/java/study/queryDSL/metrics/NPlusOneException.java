@@ -0,0 +1,13 @@
+package study.queryDSL.metrics;
+
+/**
+ * member.n-plus-one.action=THROW 일때 지연 로딩 / SQL 수가 기준을 넘으면 던진다
+ */
+public class NPlusOneException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public NPlusOneException(String message) {
+        super(message);
+    }
+}
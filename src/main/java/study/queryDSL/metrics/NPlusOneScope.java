@@ -0,0 +1,112 @@
+package study.queryDSL.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 요청, 트랜잭션, 테스트 하나 동안의 지연 로딩 횟수 (연관관계 경로별) 와 SQL 수
+ * {@link NPlusOneDetector#open} 으로 열고, 연 스레드에서 닫는다 - 열린 동안 그 스레드의 지연 로딩만 센다
+ */
+@Slf4j
+public class NPlusOneScope implements AutoCloseable {
+
+    private final String name;
+    private final int lazyLoadThreshold;
+    private final int statementThreshold;
+    private final NPlusOneDetector.Action action;
+    private final long statementBase;
+    final NPlusOneScope previous; // 바깥 범위, 닫으면 되돌린다
+    private final ThreadLocal<NPlusOneScope> current;
+
+    private final Map<String, Integer> lazyLoads = new LinkedHashMap<>();
+    private final List<String> violations = new ArrayList<>();
+    private boolean statementsReported;
+    private boolean closed;
+
+    NPlusOneScope(String name, int lazyLoadThreshold, int statementThreshold, NPlusOneDetector.Action action,
+                  ThreadLocal<NPlusOneScope> current) {
+        this.name = name;
+        this.lazyLoadThreshold = lazyLoadThreshold;
+        this.statementThreshold = statementThreshold;
+        this.action = action;
+        this.statementBase = SqlStatementCounter.current();
+        this.current = current;
+        this.previous = current.get();
+        current.set(this);
+    }
+
+    void lazyLoaded(String path) {
+        int count = lazyLoads.merge(path, 1, Integer::sum);
+        if (count == lazyLoadThreshold + 1) { // 경로마다 처음 넘었을 때 한번만
+            violation(path + " lazily loaded " + count + " times (threshold " + lazyLoadThreshold
+                    + ") in " + name + " at " + NPlusOneDetector.callSite()
+                    + " - use a fetch join or batch fetching");
+        }
+        checkStatements();
+    }
+
+    private void checkStatements() {
+        if (statementsReported || statementThreshold <= 0 || getStatementCount() <= statementThreshold) {
+            return;
+        }
+        statementsReported = true;
+        violation(getStatementCount() + " SQL statements (threshold " + statementThreshold + ") in " + name
+                + " at " + NPlusOneDetector.callSite() + ", lazy loads " + lazyLoads);
+    }
+
+    private void violation(String message) {
+        violations.add(message);
+        if (action == NPlusOneDetector.Action.THROW) {
+            throw new NPlusOneException(message);
+        }
+        log.warn("N+1 suspected: {}", message);
+    }
+
+    public int getLazyLoadCount(String path) {
+        return lazyLoads.getOrDefault(path, 0);
+    }
+
+    // 경로 -> 횟수 (Member.team, Team.members)
+    public Map<String, Integer> getLazyLoads() {
+        return Collections.unmodifiableMap(lazyLoads);
+    }
+
+    // 이 스레드에서 범위가 열린 뒤 실행된 SQL 수
+    public long getStatementCount() {
+        return SqlStatementCounter.current() - statementBase;
+    }
+
+    public List<String> getViolations() {
+        return Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * SQL 수 초과는 여기서도 확인하지만 로그만 남긴다 - 닫는 시점에는 이미 응답/커밋이 끝났을수 있다
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (current.get() == this) {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+        if (!statementsReported && statementThreshold > 0 && getStatementCount() > statementThreshold) {
+            statementsReported = true;
+            String message = getStatementCount() + " SQL statements (threshold " + statementThreshold + ") in "
+                    + name + ", lazy loads " + lazyLoads;
+            violations.add(message);
+            log.warn("N+1 suspected: {}", message);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package study.queryDSL.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import study.queryDSL.dto.BulkResult;
+import study.queryDSL.dto.MemberKeysetPage;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * study.queryDSL.repository 패키지의 리포지토리 메서드 호출마다
+ * - repository.latency : 지연시간 히스토그램 (커밋 포함, 트랜잭션 바깥에서 잰다)
+ * - repository.rows : 반환한 행 수 (List, Page/Slice 컨텐츠, 키셋 페이지, 벌크 처리 행 수, {@link RowCountResult} 메서드의 반환값)
+ * - repository.statements : 호출한 스레드에서 실행된 SQL 수
+ * 리포지토리가 다른 리포지토리를 부르면 (MemberRepository -> MemberRepositoryImpl -> MemberSearchTemplates) 바깥 호출만 기록한다
+ * Stream 결과는 닫힐 때까지 (소비 포함) 재고 흘러간 행 수를 센다
+ * JpaRepository 기본 메서드 (findAll, save ..) 는 선언된 곳이 스프링 데이터라 제외
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private static final String REPOSITORY_PACKAGE = "study.queryDSL.repository";
+    private static final ThreadLocal<Boolean> RECORDING = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Around("execution(public * study.queryDSL.repository.*.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (RECORDING.get() != null) {
+            return joinPoint.proceed();
+        }
+        RECORDING.set(Boolean.TRUE);
+        Tags tags = Tags.of("repository", repositoryName(joinPoint.getTarget()),
+                "method", joinPoint.getSignature().getName());
+        long statements = SqlStatementCounter.current();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            record(tags, start, e, -1);
+            throw e;
+        } finally {
+            RECORDING.remove();
+            summary("repository.statements", tags, "statements").record(SqlStatementCounter.current() - statements);
+        }
+        if (result instanceof CompletableFuture) {
+            // 비동기 조회는 완료될 때까지 (대기열 + 실행) 를 잰다, SQL 은 실행한 스레드에서 안쪽 호출로 잡힌다
+            ((CompletableFuture<?>) result).whenComplete((value, e) -> record(tags, start, e, e == null ? rows(value) : -1));
+        } else if (result instanceof Stream) {
+            // 만들기만 하고 돌려주면 소비하는 시간이 빠지므로 닫힐 때 기록한다, 행 수는 호출측이 실제로 읽은 만큼
+            LongAdder rows = new LongAdder();
+            return ((Stream<?>) result)
+                    .peek(row -> rows.increment())
+                    .onClose(() -> record(tags, start, null, rows.sum()));
+        } else if (result instanceof Number && isRowCount(joinPoint)) {
+            record(tags, start, null, ((Number) result).longValue());
+        } else {
+            record(tags, start, null, rows(result));
+        }
+        return result;
+    }
+
+    private void record(Tags tags, long start, Throwable error, long rows) {
+        long elapsed = System.nanoTime() - start;
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        Timer.builder("repository.latency")
+                .tags(tags)
+                .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (rows >= 0) {
+            summary("repository.rows", tags, "rows").record(rows);
+        }
+    }
+
+    private DistributionSummary summary(String name, Tags tags, String baseUnit) {
+        return DistributionSummary.builder(name)
+                .tags(tags)
+                .baseUnit(baseUnit)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // 행 수를 알수 없는 결과 (count 같은 숫자, void) 는 -1
+    static long rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberKeysetPage) {
+            return ((MemberKeysetPage) result).getContent().size();
+        }
+        if (result instanceof BulkResult) {
+            return ((BulkResult) result).getRows();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result == null || result instanceof Number || result instanceof Boolean) {
+            return -1;
+        }
+        return 1; // 엔티티 하나
+    }
+
+    private static boolean isRowCount(ProceedingJoinPoint joinPoint) {
+        return ((MethodSignature) joinPoint.getSignature()).getMethod().isAnnotationPresent(RowCountResult.class);
+    }
+
+    // 스프링 데이터 리포지토리는 JDK 프록시라 클래스 이름 대신 이 패키지의 인터페이스 이름 (MemberRepository)
+    private String repositoryName(Object target) {
+        return repositoryNames.computeIfAbsent(target.getClass(), type -> {
+            if (Proxy.isProxyClass(type)) {
+                for (Class<?> candidate : type.getInterfaces()) {
+                    if (REPOSITORY_PACKAGE.equals(candidate.getPackageName())) {
+                        return candidate.getSimpleName();
+                    }
+                }
+            }
+            return ClassUtils.getUserClass(type).getSimpleName();
+        });
+    }
+}
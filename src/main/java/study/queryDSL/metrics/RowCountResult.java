@@ -0,0 +1,15 @@
+package study.queryDSL.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 반환한 숫자가 처리한 행 수인 리포지토리 메서드 (결과를 모으지 않고 consumer 로 넘기는 스트리밍 조회 등)
+ * {@link RepositoryMetricsAspect} 가 count 같은 다른 숫자 결과와 구분해 repository.rows 로 기록한다
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RowCountResult {
+}
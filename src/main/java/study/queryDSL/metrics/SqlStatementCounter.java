@@ -0,0 +1,28 @@
+package study.queryDSL.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * 하이버네이트가 SQL 을 준비(prepare) 할 때마다 현재 스레드의 카운트를 올린다
+ * 전체 통계 (Statistics.getPrepareStatementCount) 는 모든 스레드가 섞이므로 호출 단위로 세려면 스레드별로 따로 센다
+ * 다른 스레드에서 실행된 쿼리 (병렬 카운트, 비동기 조회) 는 그 스레드의 카운트로 잡힌다
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * 현재 스레드에서 지금까지 준비된 SQL 수, 호출 전후 차이로 호출당 SQL 수를 구한다
+     */
+    public static long current() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,22 @@
+package study.queryDSL.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.queryDSL.dto.MemberKeysetOrder;
+import study.queryDSL.dto.MemberKeysetPage;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface MemberAsyncRepository {
+    // MemberRepositoryCustom 의 비동기 버전, 호출한 스레드를 막지 않고 결과를 future 로 돌려준다
+    CompletableFuture<List<MemberTeamDto>> search(MemberSearchCondition condition);
+
+    CompletableFuture<Page<MemberTeamDto>> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
+
+    CompletableFuture<Page<MemberTeamDto>> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+    CompletableFuture<MemberKeysetPage> searchKeyset(MemberSearchCondition condition, MemberKeysetOrder order, String cursor, int size);
+}
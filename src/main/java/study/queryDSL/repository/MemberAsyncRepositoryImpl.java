@@ -0,0 +1,46 @@
+package study.queryDSL.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import study.queryDSL.dto.MemberKeysetOrder;
+import study.queryDSL.dto.MemberKeysetPage;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.repository.support.AsyncQueryExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 검색을 {@link AsyncQueryExecutor} 에서 실행, 각 조회는 별도 스레드의 읽기 전용 트랜잭션이므로 커밋된 데이터만 본다
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberAsyncRepositoryImpl implements MemberAsyncRepository {
+
+    private final MemberRepository memberRepository;
+    private final AsyncQueryExecutor asyncQueryExecutor;
+
+    @Override
+    public CompletableFuture<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        return asyncQueryExecutor.submit(() -> memberRepository.search(condition));
+    }
+
+    @Override
+    public CompletableFuture<Page<MemberTeamDto>> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return asyncQueryExecutor.submit(() -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    @Override
+    public CompletableFuture<Page<MemberTeamDto>> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return asyncQueryExecutor.submit(() -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    @Override
+    public CompletableFuture<MemberKeysetPage> searchKeyset(MemberSearchCondition condition, MemberKeysetOrder order,
+                                                            String cursor, int size) {
+        return asyncQueryExecutor.submit(() -> memberRepository.searchKeyset(condition, order, cursor, size));
+    }
+}
@@ -0,0 +1,326 @@
+package study.queryDSL.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.queryDSL.datasource.ReadYourWrites;
+import study.queryDSL.dto.BulkResult;
+import study.queryDSL.dto.MemberCreateDto;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * 대량 쓰기 전용 레포지토리
+ * 한번에 커다란 트랜잭션을 잡지 않고 chunkSize 건씩 짧은 트랜잭션으로 나눠 처리한다
+ */
+@Slf4j
+@Repository
+public class MemberBulkRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final MemberTeamEventListener eventListener;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final ThreadPoolExecutor executor;
+
+    public MemberBulkRepository(EntityManager em, JPAQueryFactory queryFactory, MemberTeamEventListener eventListener,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${member.bulk.chunk-size:1000}") int chunkSize,
+                                @Value("${member.bulk.threads:4}") int threads,
+                                @Value("${member.bulk.queue-capacity:64}") int queueCapacity) {
+        Assert.isTrue(chunkSize > 0, "member.bulk.chunk-size must be positive");
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.eventListener = eventListener;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW); // 호출측 트랜잭션과 묶이지 않게
+        this.chunkSize = chunkSize;
+        // 병렬 벌크 chunk 를 실행하는 공용 풀, chunk 마다 커넥션을 하나씩 쓰므로 커넥션 풀보다 충분히 작게
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "member-bulk-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * chunkSize 건마다 flush(= jdbc batch insert, hibernate.jdbc.batch_size) 후 커밋하고 영속성 컨텍스트를 버린다
+     * 도중에 실패하면 이미 커밋된 chunk 는 남는다
+     */
+    public BulkResult bulkInsert(List<MemberCreateDto> members) {
+        long start = System.nanoTime();
+        int chunks = 0;
+        for (int from = 0; from < members.size(); from += chunkSize) {
+            List<MemberCreateDto> chunk = members.subList(from, Math.min(from + chunkSize, members.size()));
+            chunkTransaction.executeWithoutResult(status -> insertChunk(chunk));
+            chunks++;
+        }
+        BulkResult result = new BulkResult(members.size(), chunks, System.nanoTime() - start);
+        log.info("bulk insert {} members in {} ms ({} rows/sec)", result.getRows(), result.getElapsedMillis(),
+                Math.round(result.getRowsPerSecond()));
+        return result;
+    }
+
+    private void insertChunk(List<MemberCreateDto> chunk) {
+        Map<Long, Team> teams = new HashMap<>(); // 같은 chunk 안에서는 팀 프록시 재사용
+        for (MemberCreateDto dto : chunk) {
+            Team team = dto.getTeamId() == null ? null
+                    : teams.computeIfAbsent(dto.getTeamId(), id -> em.getReference(Team.class, id)); // select 없이 FK 만
+            em.persist(Member.withoutInverse(dto.getUsername(), dto.getAge(), team));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    public BulkResult bulkUpdate(MemberSearchCondition condition, UnaryOperator<JPAUpdateClause> set) {
+        return bulkUpdate(condition, set, chunkSize, 1, progress -> { });
+    }
+
+    /**
+     * 조건에 맞는 회원을 id 순서로 chunkSize 건씩 나눠 update, chunk 마다 짧은 트랜잭션으로 커밋해서 락을 오래 잡지 않는다
+     * set 예) update -> update.set(member.age, member.age.add(1))
+     * parallelism > 1 이면 서로 겹치지 않는 id 구간을 동시에 처리 (최대 member.bulk.threads 개)
+     * 끝나면 호출측 영속성 컨텍스트를 clear 한다 (@Modifying(clearAutomatically) 와 같다), flush 안된 변경은 먼저 flush 할것
+     */
+    public BulkResult bulkUpdate(MemberSearchCondition condition, UnaryOperator<JPAUpdateClause> set,
+                                 int chunkSize, int parallelism, Consumer<BulkResult> progress) {
+        return runChunked(condition, chunkSize, parallelism, progress, (afterId, lastId) ->
+                set.apply(queryFactory.update(member))
+                        .where(where(condition))
+                        .where(idRange(afterId, lastId))
+                        .execute());
+    }
+
+    public BulkResult bulkDelete(MemberSearchCondition condition) {
+        return bulkDelete(condition, chunkSize, 1, progress -> { });
+    }
+
+    public BulkResult bulkDelete(MemberSearchCondition condition, int chunkSize, int parallelism,
+                                 Consumer<BulkResult> progress) {
+        return runChunked(condition, chunkSize, parallelism, progress, (afterId, lastId) ->
+                queryFactory.delete(member)
+                        .where(where(condition))
+                        .where(idRange(afterId, lastId))
+                        .execute());
+    }
+
+    /**
+     * 조건에 맞는 id 를 keyset 으로 chunkSize 건씩 넘기며 구간 (afterId, lastId] 을 정하고 구간마다 statement 실행
+     * 구간은 실행 직전에 하나씩 정하므로 빈 구간이 없고, 동시에 떠있는 chunk 는 parallelism 개 이하
+     * 인메모리 구조들에는 시작할때와 모든 chunk 가 끝난 뒤 bulkChanged 를 알린다
+     * chunk 는 별도 트랜잭션이라 호출측 영속성 컨텍스트에 올라온 회원은 옛 값이므로 끝나면 clear
+     */
+    private BulkResult runChunked(MemberSearchCondition condition, int chunkSize, int parallelism,
+                                  Consumer<BulkResult> progress, ChunkStatement statement) {
+        Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+        Assert.isTrue(parallelism > 0, "parallelism must be positive");
+        long start = System.nanoTime();
+
+        AtomicLong rows = new AtomicLong();
+        AtomicInteger chunks = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        Deque<Future<Long>> running = new ArrayDeque<>();
+        MemberTeamEventListener.BulkWrite bulkWrite = eventListener.beginBulkWrite();
+        try {
+            Long afterId = null;
+            boolean more = true;
+            while (more) {
+                Long chunkAfterId = afterId;
+                Long lastId = lastIdOfChunk(condition, chunkAfterId, chunkSize);
+                if (lastId == null && !hasMore(condition, chunkAfterId)) {
+                    break;
+                }
+                more = lastId != null; // null 이면 남은 행이 chunkSize 보다 적다 -> 마지막 chunk
+                Supplier<Long> chunk = () -> {
+                    if (failed.get()) {
+                        return 0L; // 앞선 chunk 가 실패했으면 대기중인 chunk 는 건너뛴다
+                    }
+                    try {
+                        long affected = chunkTransaction.execute(status -> statement.execute(chunkAfterId, lastId));
+                        progress.accept(new BulkResult(rows.addAndGet(affected), chunks.incrementAndGet(),
+                                System.nanoTime() - start));
+                        return affected;
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                };
+                if (parallelism == 1) {
+                    chunk.get();
+                } else {
+                    if (running.size() >= parallelism) {
+                        await(running.poll());
+                    }
+                    running.add(submit(chunk));
+                }
+                afterId = lastId;
+            }
+            while (!running.isEmpty()) {
+                await(running.poll());
+            }
+        } finally {
+            // 실패했으면 실행중인 chunk 가 커밋까지 끝난 뒤에 알려야 알림 이후에 커밋된 chunk 가 남지 않는다
+            failed.set(true);
+            awaitQuietly(running);
+            bulkWrite.close();
+            em.clear();
+        }
+
+        BulkResult result = new BulkResult(rows.get(), chunks.get(), System.nanoTime() - start);
+        log.info("bulk statement affected {} members in {} chunks, {} ms", result.getRows(), result.getChunks(),
+                result.getElapsedMillis());
+        return result;
+    }
+
+    // afterId 다음부터 조건에 맞는 chunkSize 번째 id, 남은 행이 chunkSize 보다 적으면 null
+    // 구간은 쓰기와 같은 primary 에서 정해야 복제 지연으로 행을 건너뛰지 않는다
+    private Long lastIdOfChunk(MemberSearchCondition condition, Long afterId, int chunkSize) {
+        return chunkTransaction.execute(status -> queryFactory
+                .select(member.id)
+                .from(member)
+                .where(where(condition))
+                .where(idRange(afterId, null))
+                .orderBy(member.id.asc())
+                .offset(chunkSize - 1)
+                .fetchFirst());
+    }
+
+    private boolean hasMore(MemberSearchCondition condition, Long afterId) {
+        return chunkTransaction.execute(status -> queryFactory
+                .selectOne()
+                .from(member)
+                .where(where(condition))
+                .where(idRange(afterId, null))
+                .fetchFirst()) != null;
+    }
+
+    private Future<Long> submit(Supplier<Long> chunk) {
+        Supplier<Long> task = ReadYourWrites.propagate(chunk); // chunk 쓰기도 요청의 read-your-writes 범위에 기록
+        try {
+            return executor.submit(task::get);
+        } catch (RejectedExecutionException e) {
+            log.debug("bulk executor queue full, running chunk on caller thread");
+            return CompletableFuture.completedFuture(chunk.get());
+        }
+    }
+
+    private static void await(Future<Long> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("bulk statement interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void awaitQuietly(Collection<Future<Long>> futures) {
+        boolean interrupted = false;
+        for (Future<Long> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true; // chunk 트랜잭션은 짧으니 끝까지 기다린다
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static BooleanExpression[] idRange(Long afterId, Long lastId) {
+        return new BooleanExpression[]{
+                afterId != null ? member.id.gt(afterId) : null,
+                lastId != null ? member.id.loe(lastId) : null
+        };
+    }
+
+    // 벌크 update/delete 에는 join 을 쓸수 없어 팀 이름은 서브쿼리로
+    private BooleanExpression[] where(MemberSearchCondition condition) {
+        return new BooleanExpression[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName)
+                ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(teamName)))
+                : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    @FunctionalInterface
+    private interface ChunkStatement {
+        long execute(Long afterId, Long lastId); // (afterId, lastId] 구간 처리 후 영향받은 행 수, null 이면 그쪽 끝이 열려있다
+    }
+}
@@ -0,0 +1,137 @@
+package study.queryDSL.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import study.queryDSL.dto.IndexAdviceDto;
+import study.queryDSL.dto.MemberSearchCondition;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MemberSearchCondition 16가지 모양 x 검색 API 의 정렬마다 실제 SQL 을 H2 EXPLAIN 으로 보고 회원 테이블을 전체 스캔하는 조합을 찾는다
+ * JPQL 은 MemberSearchTemplates 가 실행하는 것 그대로, SQL 은 하이버네이트 쿼리 플랜으로 바꾸고 값은 바인딩하지 않은 채 플랜만 본다
+ * 팀 조건은 TeamIdResolver 가 바꾼 팀 id 조건 (I) 기준 - 같은 이름의 팀이 여럿인 T 는 left join 이라 팀 이름 인덱스로 시작할 수 없다
+ */
+@Slf4j
+@Component
+public class MemberIndexAdvisor {
+
+    // 정렬 없음 = dto 검색 (/v1 ~ /v5), 나머지는 Pageable 정렬로 회원 엔티티 검색
+    public static final List<Sort> SORTS = List.of(
+            Sort.unsorted(),
+            Sort.by(Sort.Order.desc("age"), Sort.Order.asc("username")),
+            Sort.by("username"));
+
+    private static final int PAGE_SIZE = 20; // 정렬 인덱스를 쓸지는 limit 에 따라 달라지므로 한 페이지 크기로 본다
+
+    // FROM "PUBLIC"."MEMBER" "MEMBER0_" /* PUBLIC.IDX_MEMBER_USERNAME: USERNAME = ?1 */
+    private static final Pattern MEMBER_ACCESS = Pattern.compile("\"MEMBER\" \"?\\w+\"?\\s*/\\* (.+?)\\s*\\*/", Pattern.DOTALL);
+
+    private final MemberSearchTemplates templates;
+    private final SessionFactoryImplementor sessionFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean h2;
+
+    public MemberIndexAdvisor(MemberSearchTemplates templates, EntityManagerFactory emf, DataSource dataSource) {
+        this.templates = templates;
+        this.sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.h2 = "H2".equals(databaseProductName(dataSource));
+    }
+
+    public List<IndexAdviceDto> advise() {
+        if (!h2) {
+            throw new IllegalStateException("index advice reads H2 EXPLAIN plans");
+        }
+        List<IndexAdviceDto> result = new ArrayList<>();
+        for (int bits = 0; bits < 16; bits++) {
+            MemberSearchCondition condition = condition(bits);
+            List<Long> teamIds = (bits & 2) != 0 ? List.of(0L) : null; // 값은 상관 없고 id 하나면 I 모양
+            for (Sort sort : SORTS) {
+                String plan = explain(templates.jpql(condition, teamIds, sort));
+                String access = memberAccess(plan);
+                result.add(new IndexAdviceDto(MemberSearchTemplates.shape(condition, teamIds), sort.toString(),
+                        access, isFullScan(access, plan), plan));
+            }
+        }
+        return result;
+    }
+
+    // 전체 스캔하는 조합만
+    public List<IndexAdviceDto> fullScans() {
+        List<IndexAdviceDto> result = new ArrayList<>();
+        for (IndexAdviceDto advice : advise()) {
+            if (advice.isFullScan()) {
+                log.info("full scan shape={} sort={} access={}", advice.getShape(), advice.getSort(), advice.getAccess());
+                result.add(advice);
+            }
+        }
+        return result;
+    }
+
+    // 5.4 에서 JPQL 을 번역한 SQL (엔티티 이름 해석 포함) 을 얻는 공개된 길은 쿼리 플랜 캐시뿐이라 deprecated 를 감수한다
+    @SuppressWarnings("deprecation")
+    private String explain(String jpql) {
+        String sql = sessionFactory.getQueryPlanCache()
+                .getHQLQueryPlan(jpql, false, Collections.emptyMap())
+                .getSqlStrings()[0];
+        return jdbcTemplate.query("explain " + sql + " limit " + PAGE_SIZE, ps -> {
+            int count = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= count; i++) {
+                ps.setNull(i, Types.NULL); // 플랜은 값 없이 정해진다
+            }
+        }, rs -> rs.next() ? rs.getString(1) : null);
+    }
+
+    static String memberAccess(String plan) {
+        Matcher matcher = MEMBER_ACCESS.matcher(plan);
+        return matcher.find() ? matcher.group(1).replaceAll("\\s+", " ") : null;
+    }
+
+    // 인덱스 조건 없이 테이블이나 인덱스 전체를 읽으면 스캔, 정렬 인덱스를 따라 limit 만큼만 읽는 경우는 제외
+    static boolean isFullScan(String access, String plan) {
+        if (access == null || access.endsWith(".tableScan")) {
+            return true;
+        }
+        return !access.contains(":") && !plan.contains("/* index sorted */");
+    }
+
+    private static MemberSearchCondition condition(int bits) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((bits & 1) != 0) {
+            condition.setUsername("username");
+        }
+        if ((bits & 2) != 0) {
+            condition.setTeamName("teamName");
+        }
+        if ((bits & 4) != 0) {
+            condition.setAgeGoe(0);
+        }
+        if ((bits & 8) != 0) {
+            condition.setAgeLoe(0);
+        }
+        return condition;
+    }
+
+    private static String databaseProductName(DataSource dataSource) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException e) {
+            log.warn("could not read database product name, index advice disabled", e);
+            return null;
+        }
+    }
+}
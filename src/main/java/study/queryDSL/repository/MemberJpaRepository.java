@@ -1,11 +1,14 @@
 package study.queryDSL.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.queryDSL.dto.MemberSearchCondition;
 import study.queryDSL.dto.MemberTeamDto;
@@ -13,10 +16,15 @@ import study.queryDSL.dto.QMemberTeamDto;
 import study.queryDSL.entity.Member;
 import study.queryDSL.entity.QMember;
 import study.queryDSL.entity.QTeam;
+import study.queryDSL.metrics.RowCountResult;
+import study.queryDSL.repository.support.MemberSearchCache;
+import study.queryDSL.repository.support.TeamIdResolver;
+import study.queryDSL.repository.support.TeamPreloader;
 
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.*;
 import static study.queryDSL.entity.QMember.*;
@@ -26,41 +34,61 @@ import static study.queryDSL.entity.QTeam.*;
 @RequiredArgsConstructor
 public class MemberJpaRepository {
 // 순수 JPA와쿼리 DSL 을 사용한 레퍼지토리
+    static final int STREAM_FETCH_SIZE = 500; // 드라이버가 한번에 가져오는 행 수
+
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchTemplates searchTemplates;
+    private final TeamIdResolver teamIdResolver;
+    private final TeamPreloader teamPreloader;
+    private final MemberSearchCache searchCache;
 
 
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class).getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl() {
         return queryFactory
                 .selectFrom(member)
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username).getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username) {
         return queryFactory
                 .selectFrom(member)
                 .where(member.username.eq(username))
                 .fetch();
     }
+
+    // 조회한 회원들의 팀 프록시, 팀의 members 를 팀 100개 단위 in 쿼리로 미리 초기화
+    public void preload(List<Member> members) {
+        teamPreloader.preload(members);
+    }
+
+    // 템플릿 없이 매 호출마다 BooleanBuilder 로 쿼리를 조립해 JPQL 로 직렬화하는 기준 버전, search 와 결과가 같다
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUsername())) {
@@ -69,10 +97,10 @@ public class MemberJpaRepository {
         if (hasText(condition.getTeamName())) {
             builder.and(team.name.eq(condition.getTeamName()));
         }
-        if(condition.getAgeGoe() != null) {
+        if (condition.getAgeGoe() != null) {
             builder.and(member.age.goe(condition.getAgeGoe()));
         }
-        if(condition.getAgeLoe() != null) {
+        if (condition.getAgeLoe() != null) {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
@@ -87,12 +115,27 @@ public class MemberJpaRepository {
                 .leftJoin(member.team, team)
                 .where(builder)
                 .fetch();
-
-
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        // 같은 모양의 조건이면 미리 직렬화된 JPQL 에 값만 바인딩, 같은 조건이면 결과 캐시 (MemberRepository.search 와 공유)
+        return searchCache.get(MemberSearchCache.Key.of("search", condition), () -> searchTemplates.search(condition));
+    }
+
+    /**
+     * search 와 같은 조건을 전방향 커서로 한 행씩 읽어 consumer 에 넘긴다, 결과를 리스트로 모으지 않아 힙 사용량이 건수와 무관
+     * dto 프로젝션이라 영속성 컨텍스트에 엔티티가 쌓이지 않는다 - 비울 필요가 없고, 같은 트랜잭션의 엔티티도 그대로 영속 상태
+     */
+    @RowCountResult
+    @Transactional(readOnly = true)
+    public long streamSearch(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) { // 없는 팀 이름이면 쿼리 없이 0건
+            return 0;
+        }
+        long count = 0;
+        try (CloseableIterator<MemberTeamDto> rows = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -103,12 +146,22 @@ public class MemberJpaRepository {
                 .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        teamIdIn(teamIds),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .fetch();
+                .orderBy(member.id.asc())
+                .setHint(QueryHints.FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.READ_ONLY, true)
+                .iterate()) { // fetch() 와 달리 하이버네이트 ScrollableResults(FORWARD_ONLY) 로 읽는다
+            while (rows.hasNext()) {
+                consumer.accept(rows.next());
+                count++;
+            }
+        }
+        return count;
     }
+
     private BooleanExpression ageBetween( int ageLoe, int ageGoe) {
         return ageGoe(ageGoe).and(ageLoe(ageLoe));
     }
@@ -116,8 +169,12 @@ public class MemberJpaRepository {
         return hasText(username) ? member.username.eq(username) : null ;
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    private List<Long> teamIds(String teamName) {
+        return hasText(teamName) ? teamIdResolver.resolve(teamName) : null;
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.team.id.in(teamIds) : null;
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
@@ -2,8 +2,16 @@ package study.queryDSL.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.queryDSL.dto.MemberKeysetOrder;
+import study.queryDSL.dto.MemberKeysetPage;
 import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamColumns;
+import study.queryDSL.dto.MemberTeamColumnsPage;
 import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.repository.support.CountStrategy;
+import study.queryDSL.repository.support.CountedPage;
 
 import java.util.List;
 
@@ -11,7 +19,28 @@ public interface MemberRepositoryCustom {
     // DATA JPA 와 쿼리DSL을 결합하기 위한 커스텀 레퍼지토리
     List<MemberTeamDto> search(MemberSearchCondition condition);
 
+    // search 와 같은 결과 (회원 id 순) 를 DB 대신 인메모리 사본에서, 사본을 쓸수 없으면 search 로
+    List<MemberTeamDto> searchInMemory(MemberSearchCondition condition);
+
+    // search 와 같은 결과를 열 단위로 (행마다 dto 를 만들지 않는다)
+    MemberTeamColumns searchColumns(MemberSearchCondition condition);
+
+    // searchPageSimple 과 같은 페이지를 열 단위로
+    MemberTeamColumnsPage searchColumnsPage(MemberSearchCondition condition, Pageable pageable);
+
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
 
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+    // 총 건수를 strategy 로 구한다 (EXACT, CAPPED(n), ESTIMATED, NONE), 응답에 어떤 전략의 값인지 포함
+    CountedPage<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable, CountStrategy strategy);
+
+    // 카운트 쿼리 없이 size + 1 건을 읽어 다음 페이지 여부만 알려주는 페이징 (무한 스크롤)
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+
+    // offset 없이 마지막 행의 (정렬키, id) 이후부터 읽는 키셋 페이징, cursor 가 null 이면 첫 페이지
+    MemberKeysetPage searchKeyset(MemberSearchCondition condition, MemberKeysetOrder order, String cursor, int size);
+
+    // 회원들의 팀과 팀의 members 를 팀 100개 단위 in 쿼리로 미리 초기화, 루프에서 getTeam() 을 건드려도 쿼리가 더 나가지 않는다
+    void preload(List<Member> members);
 }
@@ -1,41 +1,91 @@
 package study.queryDSL.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import study.queryDSL.dto.MemberKeysetOrder;
+import study.queryDSL.dto.MemberKeysetPage;
 import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamColumns;
+import study.queryDSL.dto.MemberTeamColumnsPage;
 import study.queryDSL.dto.MemberTeamDto;
 import study.queryDSL.dto.QMemberTeamDto;
 import study.queryDSL.entity.Member;
+import study.queryDSL.repository.support.CountEstimator;
+import study.queryDSL.repository.support.CountStrategy;
+import study.queryDSL.repository.support.CountedPage;
+import study.queryDSL.repository.support.KeysetCursor;
+import study.queryDSL.repository.support.MemberCountIndex;
+import study.queryDSL.repository.support.MemberReadModel;
+import study.queryDSL.repository.support.MemberSearchCache;
+import study.queryDSL.repository.support.MemberSearchCoalescer;
+import study.queryDSL.repository.support.ParallelCountExecutor;
+import study.queryDSL.repository.support.TeamIdResolver;
+import study.queryDSL.repository.support.TeamPreloader;
 
 import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.List;
+import java.util.OptionalLong;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.queryDSL.entity.QMember.member;
 import static study.queryDSL.entity.QTeam.team;
 
+@Transactional(readOnly = true) // 조회만 하므로 replica 설정이 있으면 읽기 커넥션으로, 호출측 쓰기 트랜잭션이 있으면 거기에 참여
 public class MemberRepositoryImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom{
     // 실제 쿼리DSL 코드를 작성하는 커스텀 레포지토리의 구현체
 
     private final JPAQueryFactory queryFactory;
+    private final MemberCountIndex countIndex;
+    private final MemberSearchTemplates searchTemplates;
+    private final TeamIdResolver teamIdResolver;
+    private final ParallelCountExecutor countExecutor;
+    private final TeamPreloader teamPreloader;
+    private final CountEstimator countEstimator;
+    private final MemberSearchCache searchCache;
+    private final MemberSearchCoalescer coalescer;
+    private final MemberReadModel readModel;
+    private final int maxKeysetSize;
 
     /**
      * Creates a new {@link QuerydslRepositorySupport} instance for the given domain type.
      *
-     * @param domainClass must not be {@literal null}.
      */
-    public MemberRepositoryImpl(Class<?> domainClass, EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, MemberCountIndex countIndex, MemberSearchTemplates searchTemplates,
+                                TeamIdResolver teamIdResolver, ParallelCountExecutor countExecutor,
+                                TeamPreloader teamPreloader, CountEstimator countEstimator,
+                                MemberSearchCache searchCache, MemberSearchCoalescer coalescer,
+                                MemberReadModel readModel,
+                                @Value("${member.keyset.max-size:1000}") int maxKeysetSize) {
         super(Member.class);
         queryFactory = new JPAQueryFactory(em);
+        this.countIndex = countIndex;
+        this.searchTemplates = searchTemplates;
+        this.teamIdResolver = teamIdResolver;
+        this.countExecutor = countExecutor;
+        this.teamPreloader = teamPreloader;
+        this.countEstimator = countEstimator;
+        this.searchCache = searchCache;
+        this.coalescer = coalescer;
+        this.readModel = readModel;
+        this.maxKeysetSize = maxKeysetSize;
     }
 
 
@@ -66,45 +116,133 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
 //                        team.name.as("teamName")))
 //                .fetch();
 
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
+        // 조건 모양별로 미리 직렬화된 JPQL 사용, 같은 조건이면 결과 캐시
+        return searchCache.get(MemberSearchCache.Key.of("search", condition), () -> searchTemplates.search(condition));
+    }
+
+    @Override
+    public List<MemberTeamDto> searchInMemory(MemberSearchCondition condition) {
+        // DB 검색과 같은 where 절 헬퍼를 인메모리 행에 적용
+        Predicate where = ExpressionUtils.allOf(
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
+        return readModel.search(condition, where).orElseGet(() -> search(condition));
+    }
+
+    @Override
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition) {
+        return searchTemplates.searchColumns(condition, 0, -1);
+    }
+
+    @Override
+    public MemberTeamColumnsPage searchColumnsPage(MemberSearchCondition condition, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            MemberTeamColumns content = searchTemplates.searchColumns(condition, 0, -1);
+            return new MemberTeamColumnsPage(content, pageable, content.getSize());
+        }
+        MemberTeamColumns content = searchTemplates.searchColumns(condition, pageable.getOffset(), pageable.getPageSize());
+        // PageableExecutionUtils 와 같이 마지막 페이지면 카운트 생략, 카운트 인덱스로 답할수 있으면 그 값
+        long total;
+        if (content.getSize() < pageable.getPageSize() && (pageable.getOffset() == 0 || content.getSize() > 0)) {
+            total = pageable.getOffset() + content.getSize();
+        } else {
+            total = countIndex.count(condition).orElseGet(() -> searchTemplates.count(condition));
+        }
+        return new MemberTeamColumnsPage(content, pageable, total);
+    }
+
+    @Override // DATA JPA의 페이징을 이용한 DSL
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        // fetchResults() 와 같이 카운트 쿼리와 컨텐츠 쿼리 두번 날림, 둘다 템플릿 사용
+        // 순서대로 날리지 않고 카운트는 다른 커넥션에서 동시에 실행
+        return searchCache.get(MemberSearchCache.Key.of("searchPageSimple", condition, pageable),
+                () -> countExecutor.getPage(pageable,
+                        () -> searchTemplates.search(condition, pageable.getOffset(), pageable.getPageSize()),
+                        () -> searchTemplates.count(condition)));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        // 카운트 쿼리 생략 가능한 경우 -> 컨텐츠의 총 수가 한 페이지의 컨텐츠 보다 적을때
+        // 컨텐츠와 카운트 분리, 카운트 인덱스로 답할수 있으면 카운트 쿼리도 생략
+        // 카운트 쿼리가 필요하면 컨텐츠 쿼리와 동시에 실행, 필요 없어지면 취소
+        return searchPage(condition, pageable, CountStrategy.EXACT);
+    }
+
+    @Override
+    public CountedPage<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable,
+                                                 CountStrategy strategy) {
+        return searchCache.get(MemberSearchCache.Key.of("searchPage:" + strategy, condition, pageable),
+                () -> loadPage(condition, pageable, strategy));
+    }
+
+    private CountedPage<MemberTeamDto> loadPage(MemberSearchCondition condition, Pageable pageable,
+                                                CountStrategy strategy) {
+        if (strategy.getType() == CountStrategy.Type.NONE) {
+            List<MemberTeamDto> rows = pageable.isUnpaged()
+                    ? searchTemplates.search(condition)
+                    : searchTemplates.search(condition, pageable.getOffset(), pageable.getPageSize() + 1);
+            return CountedPage.uncounted(rows, pageable);
+        }
+        if (pageable.isUnpaged()) { // 전부 읽으므로 어느 전략이든 총 건수는 읽은 행 수
+            List<MemberTeamDto> rows = searchTemplates.search(condition);
+            return new CountedPage<>(rows, pageable, rows.size(), CountStrategy.Type.EXACT, true);
+        }
+        OptionalLong indexed = countIndex.count(condition); // 인덱스로 답할수 있으면 어느 전략이든 정확한 값을 공짜로
+        if (indexed.isPresent()) {
+            List<MemberTeamDto> content = searchTemplates.search(condition, pageable.getOffset(), pageable.getPageSize());
+            return new CountedPage<>(PageableExecutionUtils.getPage(content, pageable, indexed::getAsLong),
+                    CountStrategy.Type.EXACT, true);
+        }
+        return countExecutor.getCountedPage(pageable,
+                () -> searchTemplates.search(condition, pageable.getOffset(), pageable.getPageSize()),
+                () -> countEstimator.count(strategy, Member.class, searchTemplates.ids(condition),
+                        () -> searchTemplates.count(condition)),
+                strategy.getType());
+    }
+
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        // 캐시하지 않지만 같은 조건의 동시 호출은 한번만 읽는다
+        return coalescer.execute(MemberSearchCache.Key.of("searchSlice", condition, pageable),
+                () -> loadSlice(condition, pageable));
+    }
+
+    private Slice<MemberTeamDto> loadSlice(MemberSearchCondition condition, Pageable pageable) {
+        // 카운트 쿼리 없이 한건 더 읽어서 다음 페이지 존재 여부 판단, 요청한 정렬 + id 순서로 고정해야 페이지끼리 겹치지 않는다
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(searchTemplates.search(condition, pageable.getSort(), 0, -1), pageable, false);
+        }
+        List<MemberTeamDto> content = searchTemplates.search(condition, pageable.getSort(), pageable.getOffset(),
+                pageable.getPageSize() + 1);
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    public Page<MemberTeamDto> searchPageSimple2(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) { // 없는 팀 이름이면 쿼리 없이 빈 페이지
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+        JPQLQuery<MemberTeamDto> jpqlQuery = from(member)
                 .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        teamIdIn(teamIds),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .fetch();
-    }
-
-    @Override // DATA JPA의 페이징을 이용한 DSL
-    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
                         team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults(); // 페이징시 카운트 쿼리와 컨텐츠 쿼리 두번 날림
+                        team.name.as("teamName")));
 
+        JPQLQuery<MemberTeamDto> query = getQuerydsl().applyPagination(pageable, jpqlQuery);
+        QueryResults<MemberTeamDto> results = query.fetchResults();
         List<MemberTeamDto> content = results.getResults();
         long total = results.getTotal();
 
@@ -112,7 +250,15 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
     }
 
     @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    public MemberKeysetPage searchKeyset(MemberSearchCondition condition, MemberKeysetOrder order, String cursor, int size) {
+        Assert.isTrue(size > 0, "size must be positive");
+        size = Math.min(size, maxKeysetSize); // 한 페이지 최대 크기, limit(size + 1) 이 넘치지 않게
+        KeysetCursor after = cursor != null ? KeysetCursor.decode(cursor, order) : null;
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) { // 없는 팀 이름이면 쿼리 없이 빈 결과
+            return new MemberKeysetPage(Collections.emptyList(), null);
+        }
+
         List<MemberTeamDto> content = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -124,52 +270,46 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
                 .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        teamIdIn(teamIds),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        ageLoe(condition.getAgeLoe()),
+                        keysetAfter(order, after)
                 )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .orderBy(keysetOrder(order))
+                .limit(size + 1) // 한건 더 읽어서 다음 페이지 존재 여부 판단, 카운트 쿼리 없음
                 .fetch();
-        // 카운트 쿼리 생략 가능한 경우 -> 컨텐츠의 총 수가 한 페이지의 컨텐츠 보다 적을때
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
-        // 컨텐츠와 카운트 분리
-        //countQuery.fetchCount();
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount ); // 조건에 맞으면 카운트 쿼리 안보냄
-        //return new PageImpl<>(content, pageable, total);
+
+        if (content.size() <= size) {
+            return new MemberKeysetPage(content, null);
+        }
+        content = content.subList(0, size);
+        MemberTeamDto last = content.get(size - 1);
+        long sortKey = order == MemberKeysetOrder.AGE_ID ? last.getAge() : last.getMemberId();
+        return new MemberKeysetPage(content, new KeysetCursor(order, sortKey, last.getMemberId()).encode());
     }
 
-    public Page<MemberTeamDto> searchPageSimple2(MemberSearchCondition condition, Pageable pageable) {
-        JPQLQuery<MemberTeamDto> jpqlQuery = from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")));
+    @Override
+    public void preload(List<Member> members) {
+        teamPreloader.preload(members);
+    }
 
-        JPQLQuery<MemberTeamDto> query = getQuerydsl().applyPagination(pageable, jpqlQuery);
-        QueryResults<MemberTeamDto> results = query.fetchResults();
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+    private BooleanExpression keysetAfter(MemberKeysetOrder order, KeysetCursor after) {
+        if (after == null) {
+            return null;
+        }
+        if (order == MemberKeysetOrder.AGE_ID) { // (age, id) > (:age, :id)
+            int age = Math.toIntExact(after.getSortKey()); // decode 에서 범위를 확인했다
+            return member.age.gt(age)
+                    .or(member.age.eq(age).and(member.id.gt(after.getId())));
+        }
+        return member.id.gt(after.getId());
+    }
 
-        return new PageImpl<>(content, pageable, total);
+    private OrderSpecifier<?>[] keysetOrder(MemberKeysetOrder order) {
+        if (order == MemberKeysetOrder.AGE_ID) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
     }
 
     private BooleanExpression ageBetween(int ageLoe, int ageGoe) {
@@ -183,6 +323,16 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
         return hasText(teamName) ? team.name.eq(teamName) : null;
     }
 
+    // teamName 조건을 팀 id 로 변환, 조건이 없으면 null
+    private List<Long> teamIds(String teamName) {
+        return hasText(teamName) ? teamIdResolver.resolve(teamName) : null;
+    }
+
+    // team 조인 없이 member.team_id 컬럼으로 비교
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.team.id.in(teamIds) : null;
+    }
+
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe != null ? member.age.goe(ageGoe) : null;
     }
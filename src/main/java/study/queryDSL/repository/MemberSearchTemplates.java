@@ -0,0 +1,242 @@
+package study.queryDSL.repository;
+
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import org.springframework.stereotype.Component;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamColumns;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.dto.QMemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.repository.support.CountEstimator;
+import study.queryDSL.repository.support.QueryTemplate;
+import study.queryDSL.repository.support.QueryTemplateCache;
+import study.queryDSL.repository.support.TeamIdResolver;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition 검색 쿼리를 조건 모양별로 미리 만들어 두고 값만 바인딩해서 실행
+ * 모양 = username, teamName, ageGoe, ageLoe 각각의 존재 여부 (16가지)
+ * teamName 은 {@link TeamIdResolver} 로 팀 id 로 바꿔 member.team.id 조건으로 검색, 없는 팀 이름이면 쿼리 없이 빈 결과
+ */
+@Component
+public class MemberSearchTemplates {
+
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Long> TEAM_ID = new Param<>(Long.class, "teamId");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private static final int COLUMNS_FETCH_SIZE = 500;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final QueryTemplateCache cache;
+    private final TeamIdResolver teamIdResolver;
+    private final Querydsl querydsl; // Pageable 정렬 적용용
+
+    public MemberSearchTemplates(EntityManager em, JPAQueryFactory queryFactory, QueryTemplateCache cache,
+                                 TeamIdResolver teamIdResolver) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.cache = cache;
+        this.teamIdResolver = teamIdResolver;
+        this.querydsl = new Querydsl(em, new PathBuilder<>(member.getType(), member.getMetadata()));
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition);
+        if (isUnknownTeam(teamIds)) {
+            return Collections.emptyList();
+        }
+        return dtoTemplate(condition, teamIds).fetch(em, params(condition, teamIds));
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, long offset, int limit) {
+        List<Long> teamIds = teamIds(condition);
+        if (isUnknownTeam(teamIds)) {
+            return Collections.emptyList();
+        }
+        return dtoTemplate(condition, teamIds).fetch(em, params(condition, teamIds), offset, limit);
+    }
+
+    /**
+     * 요청한 정렬 뒤에 member.id 를 붙여 순서를 고정한 검색, limit < 0 이면 전부
+     * 정렬 값이 같은 행끼리 순서가 바뀌면 offset 으로 넘긴 페이지 사이에 행이 겹치거나 빠진다
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Sort sort, long offset, int limit) {
+        List<Long> teamIds = teamIds(condition);
+        if (isUnknownTeam(teamIds)) {
+            return Collections.emptyList();
+        }
+        return sortedDtoTemplate(condition, teamIds, sort).fetch(em, params(condition, teamIds), offset, limit);
+    }
+
+    // search 와 같은 결과를 dto 없이 열 배열에 바로 채운다, limit < 0 이면 전부
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition, long offset, int limit) {
+        MemberTeamColumns.Builder columns = new MemberTeamColumns.Builder(limit < 0 ? 16 : limit);
+        List<Long> teamIds = teamIds(condition);
+        if (isUnknownTeam(teamIds)) {
+            return columns.build();
+        }
+        // select 순서 = memberId, username, age, teamId, teamName
+        dtoTemplate(condition, teamIds).scroll(em, params(condition, teamIds), offset, limit, COLUMNS_FETCH_SIZE,
+                row -> columns.add((Long) row[0], (String) row[1], (Integer) row[2], (Long) row[3], (String) row[4]));
+        return columns.build();
+    }
+
+    public long count(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition);
+        if (isUnknownTeam(teamIds)) {
+            return 0;
+        }
+        return dtoTemplate(condition, teamIds).fetchCount(em, params(condition, teamIds));
+    }
+
+    // 조건에 맞는 회원 id 표본, CAPPED / ESTIMATED 카운트용
+    public CountEstimator.IdSampler ids(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition);
+        if (isUnknownTeam(teamIds)) {
+            return (limit, orderById) -> Collections.emptyList();
+        }
+        QueryTemplate<MemberTeamDto> template = dtoTemplate(condition, teamIds);
+        Map<ParamExpression<?>, Object> params = params(condition, teamIds);
+        return (limit, orderById) -> template.fetchIds(em, params, limit, orderById);
+    }
+
+    // Pageable 의 정렬까지 템플릿 키에 포함
+    public List<Member> searchMembers(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition);
+        if (isUnknownTeam(teamIds)) {
+            return Collections.emptyList();
+        }
+        QueryTemplate<Member> template = memberTemplate(condition, teamIds, pageable);
+        return pageable.isPaged()
+                ? template.fetch(em, params(condition, teamIds), pageable.getOffset(), pageable.getPageSize())
+                : template.fetch(em, params(condition, teamIds));
+    }
+
+    public long countMembers(MemberSearchCondition condition) {
+        List<Long> teamIds = teamIds(condition);
+        if (isUnknownTeam(teamIds)) {
+            return 0;
+        }
+        return memberTemplate(condition, teamIds, Pageable.unpaged()).fetchCount(em, params(condition, teamIds));
+    }
+
+    // 조건 모양별 검색 JPQL, 값은 비워둔 채 - 정렬이 없으면 dto 검색, 있으면 회원 엔티티 검색 (MemberIndexAdvisor 용)
+    public String jpql(MemberSearchCondition condition, List<Long> teamIds, Sort sort) {
+        return sort.isSorted()
+                ? memberTemplate(condition, teamIds, PageRequest.of(0, 1, sort)).getJpql()
+                : dtoTemplate(condition, teamIds).getJpql();
+    }
+
+    private QueryTemplate<MemberTeamDto> dtoTemplate(MemberSearchCondition condition, List<Long> teamIds) {
+        String shape = shape(condition, teamIds);
+        return cache.get("memberTeamDto:" + shape, () -> dtoQuery(condition, teamIds));
+    }
+
+    // 정렬까지 템플릿 키에 포함, 정렬 속성은 회원 기준 (username, age, team.name ..)
+    private QueryTemplate<MemberTeamDto> sortedDtoTemplate(MemberSearchCondition condition, List<Long> teamIds, Sort sort) {
+        Sort ordered = sort.getOrderFor("id") != null ? sort : sort.and(Sort.by("id")); // 유일한 id 로 동률 정리
+        String key = "memberTeamDto:" + shape(condition, teamIds) + ":" + ordered;
+        return cache.get(key, () -> (JPAQuery<MemberTeamDto>) querydsl.applySorting(ordered, dtoQuery(condition, teamIds)));
+    }
+
+    private JPAQuery<MemberTeamDto> dtoQuery(MemberSearchCondition condition, List<Long> teamIds) {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(where(condition, teamIds));
+    }
+
+    private QueryTemplate<Member> memberTemplate(MemberSearchCondition condition, List<Long> teamIds, Pageable pageable) {
+        String key = "member:" + shape(condition, teamIds) + ":" + pageable.getSort();
+        return cache.get(key, () -> {
+            JPAQuery<Member> query = queryFactory
+                    .selectFrom(member)
+                    .leftJoin(member.team, team)
+                    .where(where(condition, teamIds));
+            return (JPAQuery<Member>) querydsl.applySorting(pageable.getSort(), query);
+        });
+    }
+
+    // teamName 조건이 없으면 null, 있으면 해당 이름의 팀 id 목록 (없는 이름이면 빈 목록)
+    private List<Long> teamIds(MemberSearchCondition condition) {
+        return hasText(condition.getTeamName()) ? teamIdResolver.resolve(condition.getTeamName()) : null;
+    }
+
+    private static boolean isUnknownTeam(List<Long> teamIds) {
+        return teamIds != null && teamIds.isEmpty();
+    }
+
+    private static BooleanExpression[] where(MemberSearchCondition condition, List<Long> teamIds) {
+        return new BooleanExpression[]{
+                hasText(condition.getUsername()) ? member.username.eq(USERNAME) : null,
+                teamPredicate(teamIds),
+                condition.getAgeGoe() != null ? member.age.goe(AGE_GOE) : null,
+                condition.getAgeLoe() != null ? member.age.loe(AGE_LOE) : null
+        };
+    }
+
+    private static BooleanExpression teamPredicate(List<Long> teamIds) {
+        if (teamIds == null) {
+            return null;
+        }
+        // 팀 id 하나면 FK 조건, 같은 이름의 팀이 여럿인 드문 경우는 기존처럼 팀 이름 조건
+        return teamIds.size() == 1 ? member.team.id.eq(TEAM_ID) : team.name.eq(TEAM_NAME);
+    }
+
+    private static Map<ParamExpression<?>, Object> params(MemberSearchCondition condition, List<Long> teamIds) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>(4);
+        if (hasText(condition.getUsername())) {
+            params.put(USERNAME, condition.getUsername());
+        }
+        if (teamIds != null) {
+            if (teamIds.size() == 1) {
+                params.put(TEAM_ID, teamIds.get(0));
+            } else {
+                params.put(TEAM_NAME, condition.getTeamName());
+            }
+        }
+        if (condition.getAgeGoe() != null) {
+            params.put(AGE_GOE, condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            params.put(AGE_LOE, condition.getAgeLoe());
+        }
+        return params;
+    }
+
+    // 값이 아니라 어떤 조건이 있는지만 키로 사용 ex) "U-G-" = username, ageGoe 존재, 팀은 id 조건이면 I 이름 조건이면 T
+    static String shape(MemberSearchCondition condition, List<Long> teamIds) {
+        return (hasText(condition.getUsername()) ? "U" : "-")
+                + (teamIds == null ? "-" : teamIds.size() == 1 ? "I" : "T")
+                + (condition.getAgeGoe() != null ? "G" : "-")
+                + (condition.getAgeLoe() != null ? "L" : "-");
+    }
+}
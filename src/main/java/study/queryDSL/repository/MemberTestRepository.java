@@ -4,15 +4,23 @@ import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import study.queryDSL.dto.MemberSearchCondition;
 import study.queryDSL.entity.Member;
 import study.queryDSL.entity.QMember;
 import study.queryDSL.entity.QTeam;
+import study.queryDSL.repository.support.CountStrategy;
+import study.queryDSL.repository.support.CountedPage;
+import study.queryDSL.repository.support.MemberCountIndex;
 import study.queryDSL.repository.support.Querydsl4RepositorySupport;
+import study.queryDSL.repository.support.TeamIdResolver;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.OptionalLong;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.queryDSL.entity.QMember.*;
@@ -21,8 +29,16 @@ import static study.queryDSL.entity.QTeam.team;
 @Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
-    public MemberTestRepository() {
+    private final MemberCountIndex countIndex;
+    private final MemberSearchTemplates searchTemplates;
+    private final TeamIdResolver teamIdResolver;
+
+    public MemberTestRepository(MemberCountIndex countIndex, MemberSearchTemplates searchTemplates,
+                                TeamIdResolver teamIdResolver) {
         super(Member.class);
+        this.countIndex = countIndex;
+        this.searchTemplates = searchTemplates;
+        this.teamIdResolver = teamIdResolver;
     }
 
     public List<Member> basicSelect() {
@@ -38,10 +54,14 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     }
 
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) { // 없는 팀 이름이면 쿼리 없이 빈 페이지
+            return PageableExecutionUtils.getPage(Collections.emptyList(), pageable, () -> 0L);
+        }
         JPAQuery<Member> query = selectFrom(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        teamIdIn(teamIds),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()));
 
@@ -51,48 +71,82 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
-        return applyPagination(pageable, query ->
-                query.selectFrom(member)
-                        .leftJoin(member.team, team)
-                        .where(usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
-        );
+        // 정렬까지 포함한 조건 모양별 템플릿 사용
+        OptionalLong indexed = countIndex.count(condition);
+        if (indexed.isPresent()) {
+            List<Member> content = searchTemplates.searchMembers(condition, pageable);
+            return PageableExecutionUtils.getPage(content, pageable, indexed::getAsLong);
+        }
+        return getCountExecutor().getPage(pageable,
+                () -> searchTemplates.searchMembers(condition, pageable),
+                () -> searchTemplates.countMembers(condition));
     }
 
     public Page<Member> applyPaginationComplex(MemberSearchCondition condition, Pageable pageable) {
+        // 템플릿 없이 Querydsl4RepositorySupport 로, 카운트 쿼리를 따로 정의 (정렬, 페이징 없이 id 만)
+        // 카운트는 다른 커넥션에서 컨텐츠 쿼리와 동시에
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) { // 없는 팀 이름이면 쿼리 없이 빈 페이지
+            return PageableExecutionUtils.getPage(Collections.emptyList(), pageable, () -> 0L);
+        }
         return applyPagination(pageable,
-                query ->
-                        query
+                query -> query
                         .selectFrom(member)
                         .leftJoin(member.team, team)
-                        .where(
-                                usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
+                        .where(usernameEq(condition.getUsername()),
+                                teamIdIn(teamIds),
                                 ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        ),
-                countQuery ->
-                        countQuery
+                                ageLoe(condition.getAgeLoe())),
+                countQuery -> countQuery
                         .select(member.id)
-                        .leftJoin(member.team, team)
-                        .where(
-                                usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
+                        .from(member)
+                        .where(usernameEq(condition.getUsername()),
+                                teamIdIn(teamIds),
                                 ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
-        );
+                                ageLoe(condition.getAgeLoe())));
+    }
+
+    public CountedPage<Member> applyPagination(MemberSearchCondition condition, Pageable pageable,
+                                               CountStrategy strategy) {
+        // 총 건수를 strategy 로, 같은 조건의 쿼리 하나에서 컨텐츠 / 카운트 (또는 id 표본) 를 만든다
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) { // 없는 팀 이름이면 쿼리 없이 빈 페이지
+            return new CountedPage<>(Collections.emptyList(), pageable, 0, strategy.getType(), true);
+        }
+        return applyPagination(pageable, query -> query
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamIdIn(teamIds),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())), strategy);
+    }
+
+    public Slice<Member> applySlicing(MemberSearchCondition condition, Pageable pageable) {
+        // 카운트 쿼리 없이 다음 페이지 여부만
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) { // 없는 팀 이름이면 쿼리 없이 빈 슬라이스
+            return new SliceImpl<>(Collections.emptyList(), pageable, false);
+        }
+        return applySlicing(pageable, query -> query
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamIdIn(teamIds),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())));
     }
 
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null ;
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    private List<Long> teamIds(String teamName) {
+        return hasText(teamName) ? teamIdResolver.resolve(teamName) : null;
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.team.id.in(teamIds) : null;
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
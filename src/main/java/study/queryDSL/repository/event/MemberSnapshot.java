@@ -0,0 +1,14 @@
+package study.queryDSL.repository.event;
+
+import lombok.Value;
+
+/**
+ * 이벤트 시점의 Member 컬럼 값, 엔티티 자체를 넘기면 지연로딩/변경 위험이 있어 값만 복사
+ */
+@Value
+public class MemberSnapshot {
+    Long id;
+    String username;
+    int age;
+    Long teamId; // 팀이 없으면 null
+}
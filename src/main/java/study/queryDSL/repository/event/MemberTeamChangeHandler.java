@@ -0,0 +1,18 @@
+package study.queryDSL.repository.event;
+
+/**
+ * 커밋된 Member / Team 변경을 전달 받는 빈
+ * before 가 null 이면 insert, after 가 null 이면 delete
+ */
+public interface MemberTeamChangeHandler {
+
+    default void memberChanged(MemberSnapshot before, MemberSnapshot after) {
+    }
+
+    default void teamChanged(TeamSnapshot before, TeamSnapshot after) {
+    }
+
+    // 벌크 update/delete 는 엔티티 이벤트가 발생하지 않으므로 어떤 행이 바뀌었는지 모른다 -> 전부 무효화
+    default void bulkChanged() {
+    }
+}
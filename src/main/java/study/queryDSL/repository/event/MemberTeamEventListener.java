@@ -0,0 +1,296 @@
+package study.queryDSL.repository.event;
+
+import org.hibernate.Session;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member / Team 의 insert, update, delete 를 하이버네이트 이벤트로 받아 {@link MemberTeamChangeHandler} 들에 전달
+ * 커밋이 끝난 변경만 전달하고, 롤백된 변경은 버린다
+ */
+@Component
+@SuppressWarnings("serial") // 하이버네이트 리스너 인터페이스가 Serializable 일 뿐, 스프링 빈이라 직렬화하지 않는다
+public class MemberTeamEventListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    // 현재 트랜잭션이 아직 커밋 안된 Member/Team 변경을 flush 했는지 표시하는 리소스 키
+    private static final Object PENDING_WRITES = new Object();
+
+    // Member/Team 을 쓴 트랜잭션 수, 처음 flush 할때 started, 커밋 이벤트까지 전달하고 끝나면 completed
+    private static final AtomicLong writesStarted = new AtomicLong();
+    private static final AtomicLong writesCompleted = new AtomicLong();
+
+    private final EntityManagerFactory emf;
+    private final ObjectProvider<MemberTeamChangeHandler> handlers;
+
+    public MemberTeamEventListener(EntityManagerFactory emf, ObjectProvider<MemberTeamChangeHandler> handlers) {
+        this.emf = emf;
+        this.handlers = handlers;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+
+        // flush 시점 이벤트는 "이 트랜잭션이 썼다" 는 표시만 남긴다
+        PendingWriteMarker marker = new PendingWriteMarker();
+        registry.appendListeners(EventType.POST_INSERT, marker);
+        registry.appendListeners(EventType.POST_UPDATE, marker);
+        registry.appendListeners(EventType.POST_DELETE, marker);
+    }
+
+    /**
+     * 현재 트랜잭션에 커밋 전 Member/Team 변경이 있는지
+     * 있으면 커밋된 상태만 아는 인메모리 구조로는 이 트랜잭션이 보는 값을 대신할 수 없다
+     */
+    public static boolean hasPendingWrites() {
+        return TransactionSynchronizationManager.hasResource(PENDING_WRITES);
+    }
+
+    /**
+     * hasPendingWrites 에 더해 아직 flush 되지 않은 변경까지 포함
+     * 있으면 다른 커넥션(트랜잭션) 에서 읽은 결과는 이 트랜잭션이 보는 값과 다를수 있다
+     */
+    public static boolean hasUncommittedChanges(EntityManager em) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false; // 트랜잭션 밖이면 flush 안된 변경도 없다
+        }
+        return hasPendingWrites() || em.unwrap(Session.class).isDirty();
+    }
+
+    /**
+     * 끝나지 않은 Member/Team 쓰기 트랜잭션이 없으면 지금까지 시작된 쓰기 트랜잭션 수, 있으면 -1
+     * 스냅샷 적재 전후의 값이 같고 -1 이 아니면 적재하는 동안 커밋된 변경이 없다
+     * -> 스냅샷에 이미 들어간 커밋의 이벤트가 적재 후에 도착해 두번 반영되거나, 스냅샷에 없는 커밋의 이벤트를 놓치는 일이 없다
+     */
+    public static long writeVersion() {
+        long completed = writesCompleted.get();
+        long started = writesStarted.get();
+        return started == completed ? started : -1;
+    }
+
+    /**
+     * 벌크 update/delete 실행 후 호출, 트랜잭션 안이면 커밋 이후에 전달
+     */
+    public void bulkChanged() {
+        markPendingWrite();
+        afterCommit(() -> handlers.orderedStream().forEach(MemberTeamChangeHandler::bulkChanged));
+    }
+
+    /**
+     * 여러 트랜잭션으로 나눠 커밋하는 벌크 update/delete 를 하나의 쓰기로 묶는다
+     * 열려있는 동안 writeVersion 은 -1, 시작할때와 닫을때 (마지막 chunk 가 커밋된 뒤, 실패했어도) bulkChanged 를 전달
+     * 시작할때 알려야 먼저 커밋되는 chunk 옆에서 벌크 전 값을 내주지 않는다, 닫기 전까지는 다시 적재하지 못하고 SQL 로 읽는다
+     */
+    public BulkWrite beginBulkWrite() {
+        writesStarted.incrementAndGet();
+        handlers.orderedStream().forEach(MemberTeamChangeHandler::bulkChanged);
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                handlers.orderedStream().forEach(MemberTeamChangeHandler::bulkChanged);
+            } finally {
+                writesCompleted.incrementAndGet();
+            }
+        };
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            MemberSnapshot after = memberSnapshot(event.getPersister(), event.getId(), event.getState());
+            handlers.orderedStream().forEach(handler -> handler.memberChanged(null, after));
+        } else if (entity instanceof Team) {
+            TeamSnapshot after = teamSnapshot(event.getPersister(), event.getId(), event.getState());
+            handlers.orderedStream().forEach(handler -> handler.teamChanged(null, after));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        if (!(entity instanceof Member) && !(entity instanceof Team)) {
+            return;
+        }
+        if (event.getOldState() == null) { // detached 엔티티 update 등 이전 값을 모르면 전체 무효화
+            handlers.orderedStream().forEach(MemberTeamChangeHandler::bulkChanged);
+            return;
+        }
+        if (entity instanceof Member) {
+            MemberSnapshot before = memberSnapshot(event.getPersister(), event.getId(), event.getOldState());
+            MemberSnapshot after = memberSnapshot(event.getPersister(), event.getId(), event.getState());
+            handlers.orderedStream().forEach(handler -> handler.memberChanged(before, after));
+        } else {
+            TeamSnapshot before = teamSnapshot(event.getPersister(), event.getId(), event.getOldState());
+            TeamSnapshot after = teamSnapshot(event.getPersister(), event.getId(), event.getState());
+            handlers.orderedStream().forEach(handler -> handler.teamChanged(before, after));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            MemberSnapshot before = memberSnapshot(event.getPersister(), event.getId(), event.getDeletedState());
+            handlers.orderedStream().forEach(handler -> handler.memberChanged(before, null));
+        } else if (entity instanceof Team) {
+            TeamSnapshot before = teamSnapshot(event.getPersister(), event.getId(), event.getDeletedState());
+            handlers.orderedStream().forEach(handler -> handler.teamChanged(before, null));
+        }
+    }
+
+    // 롤백된 변경은 전달하지 않는다
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return isTracked(persister);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation") // 5.4 에서는 아직 추상 메서드라 구현해야 한다, 하이버네이트는 위의 메서드를 부른다
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private static boolean isTracked(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == Member.class || type == Team.class;
+    }
+
+    private static MemberSnapshot memberSnapshot(EntityPersister persister, Object id, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        return new MemberSnapshot(
+                (Long) id,
+                (String) state[persister.getEntityMetamodel().getPropertyIndex("username")],
+                (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")],
+                teamId(team));
+    }
+
+    private static TeamSnapshot teamSnapshot(EntityPersister persister, Object id, Object[] state) {
+        return new TeamSnapshot((Long) id, (String) state[persister.getEntityMetamodel().getPropertyIndex("name")]);
+    }
+
+    private static Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) { // 지연로딩 프록시는 초기화 없이 식별자만 꺼낸다
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private static void markPendingWrite() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || hasPendingWrites()) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(PENDING_WRITES, Boolean.TRUE);
+        writesStarted.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) { // 하이버네이트 커밋 이벤트, afterCommit 의 벌크 이벤트 전달 이후
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_WRITES);
+                writesCompleted.incrementAndGet();
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public interface BulkWrite extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @SuppressWarnings("serial") // 리스너 레지스트리에만 등록하고 직렬화하지 않는다
+    private static class PendingWriteMarker implements PostInsertEventListener, PostUpdateEventListener,
+            PostDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            markIfTracked(event.getPersister());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            markIfTracked(event.getPersister());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            markIfTracked(event.getPersister());
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation") // 5.4 에서는 아직 추상 메서드라 구현해야 한다
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return requiresPostCommitHandling(persister);
+        }
+
+        private void markIfTracked(EntityPersister persister) {
+            if (isTracked(persister)) {
+                markPendingWrite();
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package study.queryDSL.repository.event;
+
+import lombok.Value;
+
+@Value
+public class TeamSnapshot {
+    Long id;
+    String name;
+}
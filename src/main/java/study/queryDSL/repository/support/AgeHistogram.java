@@ -0,0 +1,68 @@
+package study.queryDSL.repository.support;
+
+import java.util.Arrays;
+
+/**
+ * 나이별 회원 수를 펜윅 트리(누적합)로 유지
+ * 갱신, 구간 합 모두 O(log 버킷수)
+ */
+class AgeHistogram {
+
+    static final int MAX_AGE = 255; // 0 ~ MAX_AGE 까지 나이 하나가 버킷 하나
+
+    private final long[] tree = new long[MAX_AGE + 2]; // 1 부터 시작하는 펜윅 트리
+    private long outOfRange; // 버킷 밖의 나이 (음수, MAX_AGE 초과)
+    private long total;
+
+    void add(int age, long delta) {
+        total += delta;
+        if (age < 0 || age > MAX_AGE) {
+            outOfRange += delta;
+            return;
+        }
+        for (int i = age + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    long total() {
+        return total;
+    }
+
+    /**
+     * goe <= age <= loe 인 회원 수, null 은 제한 없음
+     * 버킷 밖의 나이가 하나라도 있으면 구간 경계와의 관계를 알수 없어 -1
+     */
+    long count(Integer goe, Integer loe) {
+        if (goe == null && loe == null) {
+            return total;
+        }
+        if (outOfRange != 0) {
+            return -1;
+        }
+        int from = goe == null ? 0 : Math.max(goe, 0);
+        int to = loe == null ? MAX_AGE : Math.min(loe, MAX_AGE);
+        if (from > to) {
+            return 0;
+        }
+        return prefix(to) - (from == 0 ? 0 : prefix(from - 1));
+    }
+
+    void reset() {
+        Arrays.fill(tree, 0);
+        outOfRange = 0;
+        total = 0;
+    }
+
+    boolean isEmpty() {
+        return total == 0;
+    }
+
+    private long prefix(int age) { // 0 ~ age 까지의 합
+        long sum = 0;
+        for (int i = age + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,90 @@
+package study.queryDSL.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.datasource.ReadYourWrites;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 조회를 서블릿 스레드 밖에서 실행하고 CompletableFuture 로 돌려준다
+ * 스레드 수와 별개로 세마포어 (bulkhead) 로 동시에 DB 를 쓰는 조회 수를 제한해 커넥션 풀이 고갈되지 않게 한다
+ *
+ * Java 11 이라 가상 스레드 대신 플랫폼 스레드 풀 사용, 스레드는 대부분 JDBC 응답이나 세마포어를 기다리므로 코어 수보다 넉넉히 둔다
+ * Java 21 이상이면 executor 만 Executors.newVirtualThreadPerTaskExecutor() 로 바꾸면 되고 동시 조회 한도는 그대로 세마포어가 맡는다
+ */
+@Component
+public class AsyncQueryExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore bulkhead;
+    private final long acquireTimeoutMillis;
+    private final TransactionTemplate readOnly;
+
+    public AsyncQueryExecutor(PlatformTransactionManager transactionManager,
+                              @Value("${member.async.threads:64}") int threads,
+                              @Value("${member.async.queue-capacity:2000}") int queueCapacity,
+                              @Value("${member.async.max-concurrent-queries:4}") int maxConcurrentQueries,
+                              @Value("${member.async.acquire-timeout-ms:2000}") long acquireTimeoutMillis) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "async-query-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        // 조회 하나가 병렬 카운트까지 커넥션 2개를 쓸수 있으므로 기본값은 커넥션 풀 (10) 의 절반 아래
+        this.bulkhead = new Semaphore(maxConcurrentQueries, true);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /**
+     * query 를 읽기 전용 트랜잭션 안에서 실행, 대기열이 가득 찼거나 제한 시간 안에 자리를 얻지 못하면 BulkheadFullException 으로 완료
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        try {
+            return CompletableFuture.supplyAsync(ReadYourWrites.propagate(() -> runLimited(query)), executor); // 요청에서 쓴 뒤면 primary 에서 읽는다
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new BulkheadFullException("async query queue is full"));
+        }
+    }
+
+    private <T> T runLimited(Supplier<T> query) {
+        try {
+            if (!bulkhead.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new BulkheadFullException("too many concurrent queries");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException("interrupted while waiting for a query slot");
+        }
+        try {
+            return readOnly.execute(status -> query.get());
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public int availablePermits() {
+        return bulkhead.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,13 @@
+package study.queryDSL.repository.support;
+
+/**
+ * 동시 조회 한도 ({@link AsyncQueryExecutor}) 를 넘어 대기 시간 안에 자리를 얻지 못한 경우
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
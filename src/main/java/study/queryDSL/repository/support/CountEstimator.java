@@ -0,0 +1,117 @@
+package study.queryDSL.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link CountStrategy} 에 따라 COUNT 쿼리 대신 총 건수를 구한다 (NONE 은 세지 않으므로 호출하는 쪽에서 처리)
+ * - CAPPED(n) : 조건에 맞는 id 를 n + 1 건까지만 읽는다
+ * - ESTIMATED : 조건에 맞는 id 를 id 순으로 sample-size 건 읽고, 그 마지막 id 까지의 전체 행 수로 선택도를 구해 테이블 행 수에 곱한다
+ *   조건에 맞는 행이 id 순서와 무관하게 고르게 퍼져 있다고 가정, 표본보다 적게 나오면 그 수가 정확한 총 건수
+ *   테이블 행 수는 H2 면 INFORMATION_SCHEMA.TABLES 의 ROW_COUNT_ESTIMATE, 그 외 DB 는 조건 없는 count
+ * id 쿼리를 만들수 없는 경우 (group by 등) 는 EXACT 로 센다
+ */
+@Slf4j
+@Component
+public class CountEstimator {
+
+    // 조건에 맞는 id 를 최대 limit 건, orderById 면 id 오름차순으로, id 쿼리를 만들수 없으면 null
+    @FunctionalInterface
+    public interface IdSampler {
+        List<?> fetchIds(int limit, boolean orderById);
+    }
+
+    private final EntityManager em;
+    private final int sampleSize;
+    private final boolean h2;
+
+    public CountEstimator(EntityManager em, DataSource dataSource,
+                          @Value("${member.page.estimate.sample-size:1000}") int sampleSize) {
+        this.em = em;
+        this.sampleSize = sampleSize;
+        this.h2 = "H2".equals(databaseProductName(dataSource));
+    }
+
+    public PageTotal count(CountStrategy strategy, Class<?> entityClass, IdSampler ids, LongSupplier exactCount) {
+        switch (strategy.getType()) {
+            case CAPPED:
+                return capped(strategy.getCap(), ids, exactCount);
+            case ESTIMATED:
+                return estimated(entityClass, ids, exactCount);
+            case NONE:
+                throw new IllegalArgumentException("NONE does not count");
+            default:
+                return PageTotal.exact(exactCount.getAsLong());
+        }
+    }
+
+    private PageTotal capped(long cap, IdSampler ids, LongSupplier exactCount) {
+        List<?> sample = ids.fetchIds(Math.toIntExact(cap + 1), false);
+        if (sample == null) {
+            return PageTotal.exact(exactCount.getAsLong());
+        }
+        return sample.size() > cap
+                ? new PageTotal(cap, false, CountStrategy.Type.CAPPED)
+                : new PageTotal(sample.size(), true, CountStrategy.Type.CAPPED);
+    }
+
+    private PageTotal estimated(Class<?> entityClass, IdSampler ids, LongSupplier exactCount) {
+        List<?> sample = ids.fetchIds(sampleSize, true);
+        if (sample == null) {
+            return PageTotal.exact(exactCount.getAsLong());
+        }
+        if (sample.size() < sampleSize) { // 조건에 맞는 행을 모두 읽었다
+            return new PageTotal(sample.size(), true, CountStrategy.Type.ESTIMATED);
+        }
+        Object lastId = sample.get(sampleSize - 1);
+        long scanned = rowsUpTo(entityClass, lastId); // 표본을 얻기 위해 훑은 행 수, pk 범위 count
+        long tableRows = Math.max(tableRows(entityClass), scanned);
+        long estimate = Math.round((double) tableRows * sampleSize / Math.max(scanned, 1));
+        return new PageTotal(Math.max(estimate, sampleSize), false, CountStrategy.Type.ESTIMATED);
+    }
+
+    private long rowsUpTo(Class<?> entityClass, Object id) {
+        EntityType<?> entity = em.getMetamodel().entity(entityClass);
+        String idName = entity.getId(entity.getIdType().getJavaType()).getName();
+        return em.createQuery("select count(e) from " + entity.getName() + " e where e." + idName + " <= :id", Long.class)
+                .setParameter("id", id)
+                .getSingleResult();
+    }
+
+    long tableRows(Class<?> entityClass) {
+        if (!h2) {
+            return em.createQuery("select count(e) from " + em.getMetamodel().entity(entityClass).getName() + " e",
+                    Long.class).getSingleResult();
+        }
+        AbstractEntityPersister persister = (AbstractEntityPersister) em.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMetamodel()
+                .entityPersister(entityClass);
+        Number rows = (Number) em.createNativeQuery("select ROW_COUNT_ESTIMATE from INFORMATION_SCHEMA.TABLES "
+                        + "where TABLE_SCHEMA = SCHEMA() and upper(TABLE_NAME) = upper(:table)")
+                .setParameter("table", persister.getTableName())
+                .getSingleResult();
+        return rows.longValue();
+    }
+
+    private static String databaseProductName(DataSource dataSource) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException e) {
+            log.warn("could not read database product name, table statistics disabled", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.EntityType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 컨텐츠 쿼리로부터 카운트 쿼리를 만든다
+ * - select count(id), order by / limit / offset 제거, fetch join 은 일반 join 으로
+ * - 어떤 조건에서도 참조하지 않는 to-one left join 은 제거 (행 수가 변하지 않는다)
+ * group by / having 이 있거나 루트가 여럿이면 최적화 하지 않고 기존 fetchCount 를 쓴다
+ */
+public final class CountQueryOptimizer {
+
+    private CountQueryOptimizer() {
+    }
+
+    /**
+     * 컨텐츠 쿼리와 같은 행 수를 세는 카운트 쿼리, 최적화 할수 없으면 컨텐츠 쿼리 자체의 카운트
+     */
+    public static long fetchCount(JPAQuery<?> query, EntityManager em) {
+        QueryMetadata countMetadata = optimize(query.getMetadata(), em);
+        if (countMetadata == null) {
+            return query.fetchCount();
+        }
+        Long count = new JPAQuery<Long>(em, countMetadata).fetchOne();
+        return count != null ? count : 0;
+    }
+
+    /**
+     * 컨텐츠 쿼리와 같은 조건의 루트 id 를 최대 limit 건, orderById 면 id 오름차순으로
+     * 최적화 할수 없는 쿼리면 (group by 등) null
+     */
+    public static List<?> fetchIds(JPAQuery<?> query, EntityManager em, int limit, boolean orderById) {
+        QueryMetadata idMetadata = ids(query.getMetadata(), em, orderById);
+        if (idMetadata == null) {
+            return null;
+        }
+        idMetadata.setLimit((long) limit);
+        return new JPAQuery<>(em, idMetadata).fetch();
+    }
+
+    /**
+     * select count(id) 를 projection 으로 가진 카운트용 메타데이터, 최적화 할수 없으면 null
+     */
+    public static QueryMetadata optimize(QueryMetadata metadata, EntityManager em) {
+        QueryMetadata count = reduce(metadata);
+        if (count == null) {
+            return null;
+        }
+        EntityPath<?> root = (EntityPath<?>) metadata.getJoins().get(0).getTarget();
+        Path<?> id = idPath(root, em);
+        count.setProjection(Expressions.numberOperation(Long.class,
+                metadata.isDistinct() ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG, id));
+        return count;
+    }
+
+    /**
+     * 카운트 쿼리와 같은 from / where 로 루트 id 만 select 하는 메타데이터 (CAPPED, ESTIMATED 카운트의 표본), 최적화 할수 없으면 null
+     */
+    public static QueryMetadata ids(QueryMetadata metadata, EntityManager em, boolean orderById) {
+        QueryMetadata ids = reduce(metadata);
+        if (ids == null) {
+            return null;
+        }
+        EntityPath<?> root = (EntityPath<?>) metadata.getJoins().get(0).getTarget();
+        Path<?> id = idPath(root, em);
+        ids.setProjection(id);
+        ids.setDistinct(metadata.isDistinct());
+        if (orderById) {
+            ids.addOrderBy(new OrderSpecifier<>(Order.ASC, Expressions.comparablePath(Comparable.class, root,
+                    id.getMetadata().getName())));
+        }
+        return ids;
+    }
+
+    // 정렬, 페이징, projection 을 뺀 from / where, 최적화 할수 없으면 null
+    private static QueryMetadata reduce(QueryMetadata metadata) {
+        if (!metadata.getGroupBy().isEmpty() || metadata.getHaving() != null) {
+            return null; // 그룹 수를 세야 하므로 그대로
+        }
+        List<JoinExpression> joins = metadata.getJoins();
+        if (joins.isEmpty() || !(joins.get(0).getTarget() instanceof EntityPath)) {
+            return null;
+        }
+        for (int i = 1; i < joins.size(); i++) {
+            if (joins.get(i).getType() == JoinType.DEFAULT) {
+                return null; // from 절에 루트가 여럿
+            }
+        }
+        EntityPath<?> root = (EntityPath<?>) joins.get(0).getTarget();
+        if (metadata.isDistinct() && !root.equals(metadata.getProjection())) {
+            return null; // 엔티티가 아닌 값의 distinct 는 id 로 셀수 없다
+        }
+
+        // where 에서 참조하는 경로부터 시작해 뒤쪽 join 부터 남길지 결정 (뒤의 join 이 앞의 별칭을 참조할수 있으므로)
+        Set<Expression<?>> referenced = new HashSet<>();
+        collect(metadata.getWhere(), referenced);
+        for (QueryFlag flag : metadata.getFlags()) {
+            collect(flag.getFlag(), referenced);
+        }
+        boolean[] keep = new boolean[joins.size()];
+        keep[0] = true;
+        for (int i = joins.size() - 1; i > 0; i--) {
+            JoinExpression join = joins.get(i);
+            if (isRemovable(join, referenced)) {
+                continue;
+            }
+            keep[i] = true;
+            collect(join.getTarget(), referenced);
+            collect(join.getCondition(), referenced);
+        }
+
+        DefaultQueryMetadata count = new DefaultQueryMetadata();
+        count.setValidate(false);
+        for (int i = 0; i < joins.size(); i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            JoinExpression join = joins.get(i);
+            count.addJoin(join.getType(), join.getTarget());
+            for (JoinFlag flag : join.getFlags()) {
+                if (!flag.equals(JPAQueryMixin.FETCH) && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+                    count.addJoinFlag(flag);
+                }
+            }
+            if (join.getCondition() != null) {
+                count.addJoinCondition(join.getCondition());
+            }
+        }
+        if (metadata.getWhere() != null) {
+            count.addWhere(metadata.getWhere());
+        }
+        for (QueryFlag flag : metadata.getFlags()) {
+            count.addFlag(flag);
+        }
+        for (Map.Entry<ParamExpression<?>, Object> param : metadata.getParams().entrySet()) {
+            setParam(count, param.getKey(), param.getValue());
+        }
+        return count;
+    }
+
+    // to-one left join 만 제거 대상 (on 조건이 있어도 최대 한 행), inner join 과 컬렉션 join 은 행 수를 바꾼다
+    private static boolean isRemovable(JoinExpression join, Set<Expression<?>> referenced) {
+        if (join.getType() != JoinType.LEFTJOIN) {
+            return false;
+        }
+        Expression<?> association = join.getTarget();
+        Expression<?> alias = association;
+        if (association instanceof Operation && ((Operation<?>) association).getOperator() == Ops.ALIAS) {
+            association = ((Operation<?>) association).getArg(0);
+            alias = ((Operation<?>) alias).getArg(1);
+        }
+        if (!(association instanceof Path) || ((Path<?>) association).getMetadata().getParent() == null) {
+            return false; // 연관관계가 아닌 엔티티 join (theta join)
+        }
+        Class<?> type = association.getType();
+        if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            return false;
+        }
+        return !referenced.contains(alias);
+    }
+
+    private static Path<?> idPath(EntityPath<?> root, EntityManager em) {
+        EntityType<?> entityType = em.getMetamodel().entity(root.getType());
+        Class<?> idType = entityType.getIdType().getJavaType();
+        return Expressions.path(idType, root, entityType.getId(idType).getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void setParam(QueryMetadata metadata, ParamExpression<T> param, Object value) {
+        metadata.setParam(param, (T) value);
+    }
+
+    // 식 안의 모든 경로와 그 상위 경로 (team.name -> team.name, team)
+    private static void collect(Expression<?> expression, Set<Expression<?>> paths) {
+        if (expression != null) {
+            expression.accept(PathCollector.INSTANCE, paths);
+        }
+    }
+
+    private static final class PathCollector implements Visitor<Void, Set<Expression<?>>> {
+
+        static final PathCollector INSTANCE = new PathCollector();
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Expression<?>> paths) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Expression<?>> paths) {
+            visit(expr.getArgs(), paths);
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Expression<?>> paths) {
+            visit(expr.getArgs(), paths);
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Expression<?>> paths) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Expression<?>> paths) {
+            for (Path<?> path = expr; path != null; path = path.getMetadata().getParent()) {
+                paths.add(path);
+            }
+            return null;
+        }
+
+        // 상관 서브쿼리가 바깥 별칭을 참조할수 있으므로 서브쿼리 안의 경로도 모두 참조로 본다
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Expression<?>> paths) {
+            QueryMetadata metadata = expr.getMetadata();
+            List<Expression<?>> args = new ArrayList<>();
+            for (JoinExpression join : metadata.getJoins()) {
+                args.add(join.getTarget());
+                if (join.getCondition() != null) {
+                    args.add(join.getCondition());
+                }
+            }
+            if (metadata.getWhere() != null) {
+                args.add(metadata.getWhere());
+            }
+            args.addAll(metadata.getGroupBy());
+            if (metadata.getHaving() != null) {
+                args.add(metadata.getHaving());
+            }
+            if (metadata.getProjection() != null) {
+                args.add(metadata.getProjection());
+            }
+            visit(args, paths);
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Expression<?>> paths) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    ((Expression<?>) arg).accept(this, paths);
+                }
+            }
+            return null;
+        }
+
+        private void visit(List<? extends Expression<?>> args, Set<Expression<?>> paths) {
+            for (Expression<?> arg : args) {
+                arg.accept(this, paths);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package study.queryDSL.repository.support;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * 페이지 조회의 총 건수를 구하는 방법
+ * - EXACT : count 쿼리 (기존 동작)
+ * - CAPPED(n) : 조건에 맞는 id 를 최대 n + 1 건만 읽는다, n 건을 넘으면 total = n 이고 정확하지 않음 ("n+")
+ * - ESTIMATED : 테이블 행 수 통계와 id 순 표본으로 추정
+ * - NONE : 세지 않고 한건 더 읽어 다음 페이지 여부만
+ */
+@Getter
+@EqualsAndHashCode
+public final class CountStrategy {
+
+    public enum Type {
+        EXACT, CAPPED, ESTIMATED, NONE
+    }
+
+    static final long DEFAULT_CAP = 1000;
+
+    public static final CountStrategy EXACT = new CountStrategy(Type.EXACT, 0);
+    public static final CountStrategy ESTIMATED = new CountStrategy(Type.ESTIMATED, 0);
+    public static final CountStrategy NONE = new CountStrategy(Type.NONE, 0);
+
+    private final Type type;
+    private final long cap; // CAPPED 일때만
+
+    private CountStrategy(Type type, long cap) {
+        this.type = type;
+        this.cap = cap;
+    }
+
+    public static CountStrategy capped(long cap) {
+        if (cap <= 0 || cap >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("cap must be between 1 and " + (Integer.MAX_VALUE - 1) + ": " + cap);
+        }
+        return new CountStrategy(Type.CAPPED, cap);
+    }
+
+    /**
+     * 요청 파라미터 변환 - exact, estimated, none, capped (1000 건), capped:500
+     * 스프링이 @RequestParam 을 이 메서드로 변환한다
+     */
+    public static CountStrategy valueOf(String value) {
+        String normalized = value.trim().toUpperCase(Locale.ROOT);
+        int colon = normalized.indexOf(':');
+        Type type = Type.valueOf(colon < 0 ? normalized : normalized.substring(0, colon));
+        if (type == Type.CAPPED) {
+            return capped(colon < 0 ? DEFAULT_CAP : Long.parseLong(normalized.substring(colon + 1)));
+        }
+        if (colon >= 0) {
+            throw new IllegalArgumentException("only capped takes a limit: " + value);
+        }
+        return type == Type.EXACT ? EXACT : type == Type.ESTIMATED ? ESTIMATED : NONE;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.CAPPED ? "CAPPED(" + cap + ")" : type.name();
+    }
+}
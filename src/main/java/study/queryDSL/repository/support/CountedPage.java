@@ -0,0 +1,51 @@
+package study.queryDSL.repository.support;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * 총 건수를 어떤 전략으로 구했는지, 정확한 값인지를 함께 담은 페이지
+ * totalExact 가 false 면 totalElements 는 CAPPED 의 상한 ("1000+") 이거나 추정치, NONE 이면 지금까지 본 건수 (+1)
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CountStrategy.Type countStrategy;
+    private final boolean totalExact;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, CountStrategy.Type countStrategy,
+                       boolean totalExact) {
+        super(content, pageable, total);
+        this.countStrategy = countStrategy;
+        this.totalExact = totalExact;
+    }
+
+    public CountedPage(Page<T> page, CountStrategy.Type countStrategy, boolean totalExact) {
+        this(page.getContent(), page.getPageable(), page.getTotalElements(), countStrategy, totalExact);
+    }
+
+    /**
+     * NONE - 페이지 크기보다 한건 더 읽은 rows 로 다음 페이지 여부만 판단, 카운트 쿼리 없음
+     */
+    public static <T> CountedPage<T> uncounted(List<T> rows, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new CountedPage<>(rows, pageable, rows.size(), CountStrategy.Type.NONE, true);
+        }
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<T> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        long seen = pageable.getOffset() + content.size();
+        return new CountedPage<>(content, pageable, hasNext ? seen + 1 : seen, CountStrategy.Type.NONE, !hasNext);
+    }
+
+    public CountStrategy.Type getCountStrategy() {
+        return countStrategy;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
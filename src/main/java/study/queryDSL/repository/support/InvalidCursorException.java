@@ -0,0 +1,18 @@
+package study.queryDSL.repository.support;
+
+/**
+ * 키셋 페이징 cursor ({@link KeysetCursor}) 를 해석할수 없거나 다른 정렬로 발급된 경우
+ * IllegalArgumentException 이 아니므로 레포지토리 예외 변환을 거치지 않고 그대로 올라간다
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,53 @@
+package study.queryDSL.repository.support;
+
+import lombok.Getter;
+import study.queryDSL.dto.MemberKeysetOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋(seek) 페이징용 연속 토큰
+ * 마지막 행의 (정렬키, member_id) 를 "정렬:정렬키:id" 형태로 담아 base64url 로 감싼다
+ */
+@Getter
+public class KeysetCursor {
+
+    private final MemberKeysetOrder order;
+    private final long sortKey;
+    private final long id;
+
+    public KeysetCursor(MemberKeysetOrder order, long sortKey, long id) {
+        this.order = order;
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = order.name() + ":" + sortKey + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token, MemberKeysetOrder expectedOrder) {
+        KeysetCursor cursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            cursor = new KeysetCursor(MemberKeysetOrder.valueOf(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) { // base64, 숫자 변환 오류 포함
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+
+        if (cursor.getOrder() != expectedOrder) { // 다른 정렬로 만든 토큰을 섞어 쓰면 순서가 깨진다
+            throw new InvalidCursorException("Cursor was issued for order " + cursor.getOrder() + ", not " + expectedOrder);
+        }
+        if (cursor.getOrder() == MemberKeysetOrder.AGE_ID
+                && (cursor.getSortKey() < Integer.MIN_VALUE || cursor.getSortKey() > Integer.MAX_VALUE)) { // 나이는 int
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        return cursor;
+    }
+}
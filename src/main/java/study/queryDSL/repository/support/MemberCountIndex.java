@@ -0,0 +1,222 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.datasource.PrimaryReadTransactionTemplate;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.repository.event.MemberSnapshot;
+import study.queryDSL.repository.event.MemberTeamChangeHandler;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.event.TeamSnapshot;
+
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * 검색 조건의 총 건수를 COUNT 쿼리 없이 답하기 위한 인메모리 인덱스
+ * 팀별 나이 누적합을 커밋 이벤트로 갱신하고, username 조건처럼 답할수 없는 경우는 empty 를 돌려 SQL 로 넘긴다
+ */
+@Slf4j
+@Component
+public class MemberCountIndex implements MemberTeamChangeHandler {
+
+    private static final Long NO_TEAM = -1L; // left join 이라 팀 없는 회원도 건수에 포함
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate rebuildTransaction;
+    private final boolean enabled;
+
+    private final Map<Long, AgeHistogram> byTeam = new HashMap<>();
+    private final AgeHistogram all = new AgeHistogram();
+    private final Map<Long, String> teamNames = new HashMap<>();
+    private final Map<String, Set<Long>> teamIdsByName = new HashMap<>();
+
+    private boolean ready;
+    private boolean rebuilding;
+    private boolean changedDuringRebuild;
+
+    public MemberCountIndex(EntityManager em, JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+                            @Value("${member.count-index.enabled:true}") boolean enabled) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.rebuildTransaction = new PrimaryReadTransactionTemplate(transactionManager); // 커밋된 데이터만, 이벤트와 같은 primary 에서
+        this.enabled = enabled;
+    }
+
+    /**
+     * 조건에 맞는 member left join team 의 총 건수, 인덱스로 답할수 없으면 empty
+     */
+    public OptionalLong count(MemberSearchCondition condition) {
+        if (!enabled || hasText(condition.getUsername())) {
+            return OptionalLong.empty();
+        }
+        if (MemberTeamEventListener.hasUncommittedChanges(em)) { // 이 트랜잭션의 미커밋 (flush 전 포함) 변경은 인덱스에 없다
+            return OptionalLong.empty();
+        }
+        if (!isReady() && !rebuild()) {
+            return OptionalLong.empty();
+        }
+        return lookup(condition);
+    }
+
+    private synchronized OptionalLong lookup(MemberSearchCondition condition) {
+        if (!ready) { // 조회 직전에 벌크 무효화가 들어온 경우
+            return OptionalLong.empty();
+        }
+        long count;
+        if (hasText(condition.getTeamName())) {
+            count = 0;
+            for (Long teamId : teamIdsByName.getOrDefault(condition.getTeamName(), Set.of())) {
+                AgeHistogram histogram = byTeam.get(teamId);
+                long teamCount = histogram == null ? 0 : histogram.count(condition.getAgeGoe(), condition.getAgeLoe());
+                if (teamCount < 0) {
+                    return OptionalLong.empty();
+                }
+                count += teamCount;
+            }
+        } else {
+            count = all.count(condition.getAgeGoe(), condition.getAgeLoe());
+        }
+        return count < 0 ? OptionalLong.empty() : OptionalLong.of(count);
+    }
+
+    private synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 팀별, 나이별 건수를 한번의 group by 로 다시 적재
+     * 적재 전후로 쓰기 버전 ({@link MemberTeamEventListener#writeVersion()}) 을 비교해, 적재와 겹쳐 커밋된 트랜잭션이 있으면 이번 적재는 버린다
+     * 겹친 커밋은 스냅샷에 들어갔는지 알수 없어 이벤트를 더하면 두번 세거나, 빼면 놓칠수 있다
+     */
+    boolean rebuild() {
+        long version = MemberTeamEventListener.writeVersion();
+        synchronized (this) {
+            if (rebuilding || version < 0) { // 다른 스레드가 적재 중이거나 커밋 중인 쓰기가 있으면 이번 요청은 SQL 로
+                return false;
+            }
+            rebuilding = true;
+            clear();
+            changedDuringRebuild = false;
+        }
+        try {
+            return load(version);
+        } finally {
+            synchronized (this) {
+                rebuilding = false;
+            }
+        }
+    }
+
+    private boolean load(long version) {
+        List<Tuple> teams = rebuildTransaction.execute(status -> queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .fetch());
+        List<Tuple> counts = rebuildTransaction.execute(status -> queryFactory
+                .select(member.team.id, member.age, member.count())
+                .from(member)
+                .groupBy(member.team.id, member.age)
+                .fetch());
+
+        synchronized (this) {
+            if (changedDuringRebuild || MemberTeamEventListener.writeVersion() != version) {
+                log.debug("member count index rebuild discarded, concurrent change detected");
+                clear();
+                return false;
+            }
+            for (Tuple row : teams) {
+                putTeamName(row.get(team.id), row.get(team.name));
+            }
+            for (Tuple row : counts) {
+                Long teamId = row.get(member.team.id);
+                add(teamId, row.get(member.age), row.get(member.count()));
+            }
+            ready = true;
+            return true;
+        }
+    }
+
+    @Override
+    public synchronized void memberChanged(MemberSnapshot before, MemberSnapshot after) {
+        changedDuringRebuild = true;
+        if (!ready) {
+            return;
+        }
+        if (before != null) {
+            add(before.getTeamId(), before.getAge(), -1);
+        }
+        if (after != null) {
+            add(after.getTeamId(), after.getAge(), 1);
+        }
+    }
+
+    @Override
+    public synchronized void teamChanged(TeamSnapshot before, TeamSnapshot after) {
+        changedDuringRebuild = true;
+        if (!ready) {
+            return;
+        }
+        if (before != null) {
+            removeTeamName(before.getId());
+        }
+        if (after != null) {
+            putTeamName(after.getId(), after.getName());
+        }
+    }
+
+    @Override
+    public synchronized void bulkChanged() {
+        changedDuringRebuild = true;
+        clear(); // 다음 조회때 다시 적재
+    }
+
+    private void add(Long teamId, int age, long delta) {
+        Long key = teamId == null ? NO_TEAM : teamId;
+        AgeHistogram histogram = byTeam.computeIfAbsent(key, k -> new AgeHistogram());
+        histogram.add(age, delta);
+        if (histogram.isEmpty()) {
+            byTeam.remove(key);
+        }
+        all.add(age, delta);
+    }
+
+    private void putTeamName(Long teamId, String name) {
+        teamNames.put(teamId, name);
+        teamIdsByName.computeIfAbsent(name, k -> new HashSet<>()).add(teamId);
+    }
+
+    private void removeTeamName(Long teamId) {
+        String name = teamNames.remove(teamId);
+        Set<Long> ids = teamIdsByName.get(name);
+        if (ids != null) {
+            ids.remove(teamId);
+            if (ids.isEmpty()) {
+                teamIdsByName.remove(name);
+            }
+        }
+    }
+
+    private void clear() {
+        ready = false;
+        byTeam.clear();
+        teamNames.clear();
+        teamIdsByName.clear();
+        all.reset();
+    }
+}
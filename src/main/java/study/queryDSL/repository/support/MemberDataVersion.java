@@ -0,0 +1,73 @@
+package study.queryDSL.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import study.queryDSL.repository.event.MemberSnapshot;
+import study.queryDSL.repository.event.MemberTeamChangeHandler;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.event.TeamSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member / Team 데이터 버전, 커밋된 변경 (엔티티 이벤트, 벌크 update/delete) 마다 1 씩 증가
+ * 검색 조건 + 페이지와 묶어 약한 ETag 를 만들고, 버전이 같으면 같은 응답이므로 If-None-Match 에 304 로 답할수 있다
+ * - 재시작하면 0 부터 다시 세므로 기동마다 다른 epoch 를 붙인다 (인스턴스가 여럿이면 인스턴스마다 다른 ETag)
+ * - replica 로 읽는 경우 복제가 끝나기 전의 결과에 새 버전이 붙지 않게 마지막 변경 후 settle 동안은 ETag 를 주지 않는다
+ */
+@Component
+public class MemberDataVersion implements MemberTeamChangeHandler {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong version = new AtomicLong();
+    private final long settleNanos;
+    private volatile long changedAt = System.nanoTime();
+
+    public MemberDataVersion(@Value("${member.data-version.settle:0s}") Duration settle) {
+        this.settleNanos = settle.toNanos();
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * 지금 버전과 key (정규화된 검색 조건 + 페이지) 의 약한 ETag, 쿼리보다 먼저 구해야 그 사이 변경이 다음 요청에서 보인다
+     * 최근 변경이 아직 settle 중이거나 커밋 중인 쓰기가 있으면 (벌크 chunk 는 이벤트 없이 커밋된다) null
+     */
+    public String etag(Object key) {
+        long current = version.get();
+        if (settleNanos > 0 && System.nanoTime() - changedAt < settleNanos) {
+            return null;
+        }
+        if (MemberTeamEventListener.writeVersion() < 0) {
+            return null;
+        }
+        String hash = DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8));
+        return "W/\"" + epoch + "-" + current + "-" + hash + "\"";
+    }
+
+    @Override
+    public void memberChanged(MemberSnapshot before, MemberSnapshot after) {
+        bump();
+    }
+
+    @Override
+    public void teamChanged(TeamSnapshot before, TeamSnapshot after) {
+        bump();
+    }
+
+    @Override
+    public void bulkChanged() {
+        bump();
+    }
+
+    private void bump() {
+        changedAt = System.nanoTime();
+        version.incrementAndGet();
+    }
+}
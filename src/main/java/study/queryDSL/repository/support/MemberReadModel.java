@@ -0,0 +1,381 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.datasource.PrimaryReadTransactionTemplate;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.repository.event.MemberSnapshot;
+import study.queryDSL.repository.event.MemberTeamChangeHandler;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.event.TeamSnapshot;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * search(MemberSearchCondition) 를 DB 대신 답하는 member left join team 의 인메모리 사본
+ * 커밋 이벤트로 회원 / 팀 맵을 고치고, 조회용 스냅샷 (id 순 배열 + 나이, 팀 id, username 인덱스) 은 바뀐 뒤 첫 조회때 다시 만든다
+ * 스냅샷은 잠금 밖에서 만들어 volatile 로 내보낸다 - 만드는 동안 다른 조회와 커밋 이벤트를 막지 않는다
+ * 인덱스로 후보를 좁힌 다음 DB 검색과 같은 Querydsl where 절을 {@link MemberRowPredicate} 로 적용하므로 결과 행이 같다 (순서는 회원 id 순)
+ * 답할수 없으면 (꺼짐, 적재 중, 이 트랜잭션에 커밋 전 변경) empty 를 돌려 DB 로 넘긴다
+ */
+@Slf4j
+@Component
+public class MemberReadModel implements MemberTeamChangeHandler {
+
+    private static final long NO_TEAM = -1L;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate loadTransaction;
+    private final boolean enabled;
+
+    private final Map<Long, MemberSnapshot> members = new HashMap<>();
+    private final Map<Long, String> teamNames = new HashMap<>();
+    private volatile Snapshot snapshot; // null 이면 다음 조회때 다시 만든다
+
+    private boolean ready;
+    private boolean loading;
+    private boolean changedDuringLoad;
+    private boolean building;
+    private long changes; // 맵이 바뀔때마다, 만드는 사이 바뀐 스냅샷은 내보내지 않는다
+
+    public MemberReadModel(EntityManager em, JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+                           @Value("${member.read-model.enabled:true}") boolean enabled) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.loadTransaction = new PrimaryReadTransactionTemplate(transactionManager); // 커밋된 데이터만, 이벤트와 같은 primary 에서
+        this.enabled = enabled;
+    }
+
+    /**
+     * where 는 DB 검색이 condition 으로 만드는 것과 같은 Querydsl 조건, 인덱스 선택에는 condition 을 쓴다
+     */
+    public Optional<List<MemberTeamDto>> search(MemberSearchCondition condition, Predicate where) {
+        if (!enabled || MemberTeamEventListener.hasUncommittedChanges(em)) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot;
+        if (current == null) {
+            if (!isReady() && !load()) {
+                return Optional.empty();
+            }
+            current = buildSnapshot();
+            if (current == null) { // 다른 스레드가 만드는 중이거나 조회 직전에 벌크 무효화가 들어온 경우
+                return Optional.empty();
+            }
+        }
+        return Optional.of(current.search(condition, MemberRowPredicate.compile(where)));
+    }
+
+    private synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 잠근 채로는 회원, 팀 이름만 복사하고 정렬과 인덱스는 잠금 밖에서 만든다
+     * 만드는 사이 맵이 바뀌지 않았을때만 내보내고, 바뀌었어도 복사한 시점의 커밋된 상태이므로 이번 조회에는 쓴다
+     */
+    private Snapshot buildSnapshot() {
+        MemberSnapshot[] rows;
+        Map<Long, String> names;
+        long version;
+        synchronized (this) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            if (!ready || building) {
+                return null;
+            }
+            building = true;
+            rows = members.values().toArray(new MemberSnapshot[0]);
+            names = new HashMap<>(teamNames);
+            version = changes;
+        }
+        Snapshot built = null;
+        try {
+            built = new Snapshot(rows, names);
+            return built;
+        } finally {
+            synchronized (this) {
+                building = false;
+                if (built != null && ready && changes == version) {
+                    snapshot = built;
+                }
+            }
+        }
+    }
+
+    /**
+     * 팀과 회원을 다시 적재, 적재와 겹쳐 커밋된 쓰기가 있으면 이번 적재는 버린다 (MemberCountIndex 와 같은 방식)
+     */
+    boolean load() {
+        long version = MemberTeamEventListener.writeVersion();
+        synchronized (this) {
+            if (loading || version < 0) { // 다른 스레드가 적재 중이거나 커밋 중인 쓰기가 있으면 이번 요청은 DB 로
+                return false;
+            }
+            loading = true;
+            clear();
+            changedDuringLoad = false;
+        }
+        try {
+            List<Tuple> teams = loadTransaction.execute(status -> queryFactory
+                    .select(team.id, team.name)
+                    .from(team)
+                    .fetch());
+            List<Tuple> rows = loadTransaction.execute(status -> queryFactory
+                    .select(member.id, member.username, member.age, member.team.id)
+                    .from(member)
+                    .fetch());
+            synchronized (this) {
+                if (changedDuringLoad || MemberTeamEventListener.writeVersion() != version) {
+                    log.debug("member read model load discarded, concurrent change detected");
+                    clear();
+                    return false;
+                }
+                for (Tuple row : teams) {
+                    teamNames.put(row.get(team.id), row.get(team.name));
+                }
+                for (Tuple row : rows) {
+                    Long id = row.get(member.id);
+                    members.put(id, new MemberSnapshot(id, row.get(member.username), row.get(member.age), row.get(member.team.id)));
+                }
+                changes++;
+                ready = true;
+                return true;
+            }
+        } finally {
+            synchronized (this) {
+                loading = false;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void memberChanged(MemberSnapshot before, MemberSnapshot after) {
+        changedDuringLoad = true;
+        if (!ready) {
+            return;
+        }
+        if (before != null) {
+            members.remove(before.getId());
+        }
+        if (after != null) {
+            members.put(after.getId(), after);
+        }
+        changes++;
+        snapshot = null;
+    }
+
+    @Override
+    public synchronized void teamChanged(TeamSnapshot before, TeamSnapshot after) {
+        changedDuringLoad = true;
+        if (!ready) {
+            return;
+        }
+        if (before != null) {
+            teamNames.remove(before.getId());
+        }
+        if (after != null) {
+            teamNames.put(after.getId(), after.getName());
+        }
+        changes++;
+        snapshot = null;
+    }
+
+    @Override
+    public synchronized void bulkChanged() {
+        changedDuringLoad = true;
+        clear(); // 다음 조회때 다시 적재
+    }
+
+    private void clear() {
+        ready = false;
+        members.clear();
+        teamNames.clear();
+        changes++;
+        snapshot = null;
+    }
+
+    public synchronized int size() {
+        return members.size();
+    }
+
+    /**
+     * 한 시점의 읽기 전용 사본, 행은 회원 id 순이고 인덱스는 행 번호 배열
+     */
+    private static final class Snapshot {
+        private static final int[] NONE = new int[0];
+
+        final long[] ids;
+        final String[] usernames;
+        final int[] ages;
+        final long[] teamIds; // 팀 없으면 NO_TEAM
+        final String[] teamNames;
+
+        final int[] byAge; // 나이, id 순으로 정렬한 행 번호
+        final int[] sortedAges; // byAge 순서의 나이, 범위 검색용
+        final Map<String, int[]> byUsername = new HashMap<>();
+        final Map<Long, int[]> byTeam = new HashMap<>();
+        final Map<String, long[]> teamIdsByName = new HashMap<>();
+
+        Snapshot(MemberSnapshot[] members, Map<Long, String> names) {
+            int n = members.length;
+            Arrays.sort(members, Comparator.comparingLong(MemberSnapshot::getId));
+            ids = new long[n];
+            usernames = new String[n];
+            ages = new int[n];
+            teamIds = new long[n];
+            teamNames = new String[n];
+            for (int i = 0; i < n; i++) {
+                MemberSnapshot m = members[i];
+                ids[i] = m.getId();
+                usernames[i] = m.getUsername();
+                ages[i] = m.getAge();
+                teamIds[i] = m.getTeamId() == null ? NO_TEAM : m.getTeamId();
+                teamNames[i] = m.getTeamId() == null ? null : names.get(m.getTeamId()); // 팀 이벤트가 늦으면 null (left join)
+            }
+
+            // (나이, 행 번호) 를 long 하나로 묶어 기본형 정렬 - 상위 32비트 나이, 하위 32비트 행 번호
+            long[] order = new long[n];
+            for (int row = 0; row < n; row++) {
+                order[row] = ((long) ages[row] << 32) | row;
+            }
+            Arrays.sort(order);
+            byAge = new int[n];
+            sortedAges = new int[n];
+            for (int k = 0; k < n; k++) {
+                byAge[k] = (int) order[k];
+                sortedAges[k] = (int) (order[k] >> 32);
+            }
+
+            Map<String, RowList> usernameRows = new HashMap<>();
+            Map<Long, RowList> teamRows = new HashMap<>();
+            for (int row = 0; row < n; row++) {
+                usernameRows.computeIfAbsent(usernames[row], k -> new RowList()).add(row);
+                teamRows.computeIfAbsent(teamIds[row], k -> new RowList()).add(row);
+            }
+            usernameRows.forEach((username, rows) -> byUsername.put(username, rows.toArray()));
+            teamRows.forEach((teamId, rows) -> byTeam.put(teamId, rows.toArray()));
+
+            Map<String, List<Long>> idsByName = new HashMap<>();
+            names.forEach((teamId, name) -> idsByName.computeIfAbsent(name, k -> new ArrayList<>()).add(teamId));
+            idsByName.forEach((name, teamIdList) ->
+                    teamIdsByName.put(name, teamIdList.stream().mapToLong(Long::longValue).toArray()));
+        }
+
+        List<MemberTeamDto> search(MemberSearchCondition condition, java.util.function.Predicate<MemberTeamDto> where) {
+            List<MemberTeamDto> result = new ArrayList<>();
+            for (int row : candidates(condition)) {
+                MemberTeamDto dto = new MemberTeamDto(ids[row], usernames[row], ages[row],
+                        teamIds[row] == NO_TEAM ? null : teamIds[row], teamNames[row]);
+                if (where.test(dto)) {
+                    result.add(dto);
+                }
+            }
+            return result;
+        }
+
+        // 가장 좁은 인덱스로 고른 후보 행 번호 (id 순), 나머지 조건은 where 로 거른다
+        private int[] candidates(MemberSearchCondition condition) {
+            if (hasText(condition.getUsername())) {
+                return byUsername.getOrDefault(condition.getUsername(), NONE);
+            }
+            if (hasText(condition.getTeamName())) {
+                long[] teams = teamIdsByName.get(condition.getTeamName());
+                if (teams == null) {
+                    return NONE;
+                }
+                int[][] parts = new int[teams.length][];
+                for (int k = 0; k < teams.length; k++) {
+                    parts[k] = byTeam.getOrDefault(teams[k], NONE);
+                }
+                return sortedUnion(parts);
+            }
+            if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+                int from = condition.getAgeGoe() == null ? 0 : lowerBound(sortedAges, condition.getAgeGoe());
+                int to = condition.getAgeLoe() == null ? sortedAges.length
+                        : condition.getAgeLoe() == Integer.MAX_VALUE ? sortedAges.length
+                        : lowerBound(sortedAges, condition.getAgeLoe() + 1);
+                if (from >= to) {
+                    return NONE;
+                }
+                int[] rows = Arrays.copyOfRange(byAge, from, to);
+                Arrays.sort(rows); // 결과는 id 순
+                return rows;
+            }
+            int[] all = new int[ids.length];
+            for (int row = 0; row < all.length; row++) {
+                all[row] = row;
+            }
+            return all;
+        }
+
+        private static int lowerBound(int[] sorted, int value) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static int[] sortedUnion(int[][] parts) {
+            if (parts.length == 1) {
+                return parts[0];
+            }
+            int total = 0;
+            for (int[] part : parts) {
+                total += part.length;
+            }
+            int[] rows = new int[total];
+            int k = 0;
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, rows, k, part.length);
+                k += part.length;
+            }
+            Arrays.sort(rows); // 팀끼리 회원이 겹치지 않으므로 중복 없음
+            return rows;
+        }
+    }
+
+    // 행 번호 목록, 행마다 Integer 를 만들지 않게 int 배열로 모은다
+    private static final class RowList {
+        private int[] rows = new int[4];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        int[] toArray() {
+            return size == rows.length ? rows : Arrays.copyOf(rows, size);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import study.queryDSL.dto.MemberTeamDto;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * 검색에 쓰는 Querydsl where 절 (member left join team) 을 DB 없이 MemberTeamDto 행에 적용할수 있게 바꾼다
+ * SQL 과 같은 3값 논리 - null 과의 비교는 unknown(null) 이고, 최종 결과가 true 인 행만 남는다
+ * 검색 헬퍼가 만드는 경로와 연산만 지원하고, 그 밖 (서브쿼리, like 등) 은 IllegalArgumentException
+ */
+final class MemberRowPredicate {
+
+    private static final Map<Path<?>, Function<MemberTeamDto, Object>> COLUMNS = Map.of(
+            member.id, MemberTeamDto::getMemberId,
+            member.username, MemberTeamDto::getUsername,
+            member.age, MemberTeamDto::getAge,
+            member.team.id, MemberTeamDto::getTeamId,
+            team.id, MemberTeamDto::getTeamId,
+            team.name, MemberTeamDto::getTeamName);
+
+    private MemberRowPredicate() {
+    }
+
+    // where 가 null 이면 (조건 없음) 모든 행
+    static java.util.function.Predicate<MemberTeamDto> compile(Predicate where) {
+        if (where == null) {
+            return row -> true;
+        }
+        Function<MemberTeamDto, Object> condition = compileExpression(where);
+        return row -> Boolean.TRUE.equals(condition.apply(row));
+    }
+
+    private static Function<MemberTeamDto, Object> compileExpression(Expression<?> expression) {
+        if (expression instanceof Constant) {
+            Object value = ((Constant<?>) expression).getConstant();
+            return row -> value;
+        }
+        if (expression instanceof Path) {
+            Function<MemberTeamDto, Object> column = COLUMNS.get(expression);
+            if (column == null) {
+                throw new IllegalArgumentException("unsupported path for in-memory search: " + expression);
+            }
+            return column;
+        }
+        if (expression instanceof Operation) {
+            return compileOperation((Operation<?>) expression);
+        }
+        throw new IllegalArgumentException("unsupported expression for in-memory search: " + expression);
+    }
+
+    private static Function<MemberTeamDto, Object> compileOperation(Operation<?> operation) {
+        Function<MemberTeamDto, Object> left = compileExpression(operation.getArg(0));
+        Function<MemberTeamDto, Object> right = operation.getArgs().size() > 1 ? compileExpression(operation.getArg(1)) : null;
+        Ops op = operation.getOperator() instanceof Ops ? (Ops) operation.getOperator() : null;
+        if (op == null) {
+            throw new IllegalArgumentException("unsupported operator for in-memory search: " + operation);
+        }
+        switch (op) {
+            case AND:
+                return row -> and(left.apply(row), right.apply(row));
+            case OR:
+                return row -> or(left.apply(row), right.apply(row));
+            case NOT:
+                return row -> not(left.apply(row));
+            case IS_NULL:
+                return row -> left.apply(row) == null;
+            case IS_NOT_NULL:
+                return row -> left.apply(row) != null;
+            case EQ:
+                return row -> compare(left.apply(row), right.apply(row), c -> c == 0);
+            case NE:
+                return row -> compare(left.apply(row), right.apply(row), c -> c != 0);
+            case GOE:
+                return row -> compare(left.apply(row), right.apply(row), c -> c >= 0);
+            case LOE:
+                return row -> compare(left.apply(row), right.apply(row), c -> c <= 0);
+            case GT:
+                return row -> compare(left.apply(row), right.apply(row), c -> c > 0);
+            case LT:
+                return row -> compare(left.apply(row), right.apply(row), c -> c < 0);
+            case BETWEEN:
+                Function<MemberTeamDto, Object> to = compileExpression(operation.getArg(2));
+                return row -> and(compare(left.apply(row), right.apply(row), c -> c >= 0),
+                        compare(left.apply(row), to.apply(row), c -> c <= 0));
+            case IN:
+                return row -> in(left.apply(row), (Collection<?>) right.apply(row));
+            case NOT_IN:
+                return row -> not(in(left.apply(row), (Collection<?>) right.apply(row)));
+            default:
+                throw new IllegalArgumentException("unsupported operator for in-memory search: " + operation);
+        }
+    }
+
+    private static Boolean and(Object a, Object b) {
+        if (Boolean.FALSE.equals(a) || Boolean.FALSE.equals(b)) {
+            return false;
+        }
+        return a == null || b == null ? null : true;
+    }
+
+    private static Boolean or(Object a, Object b) {
+        if (Boolean.TRUE.equals(a) || Boolean.TRUE.equals(b)) {
+            return true;
+        }
+        return a == null || b == null ? null : false;
+    }
+
+    private static Boolean not(Object a) {
+        return a == null ? null : !(Boolean) a;
+    }
+
+    private static Boolean in(Object value, Collection<?> values) {
+        if (value == null) {
+            return null;
+        }
+        for (Object candidate : values) {
+            if (Boolean.TRUE.equals(compare(value, candidate, c -> c == 0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private interface Comparison {
+        boolean test(int c);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Boolean compare(Object a, Object b, Comparison comparison) {
+        if (a == null || b == null) {
+            return null;
+        }
+        int c;
+        if (a instanceof Number && b instanceof Number) {
+            c = Long.compare(((Number) a).longValue(), ((Number) b).longValue()); // id, age 는 정수
+        } else {
+            c = ((Comparable) a).compareTo(b);
+        }
+        return comparison.test(c);
+    }
+}
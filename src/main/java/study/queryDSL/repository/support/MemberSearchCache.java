@@ -0,0 +1,290 @@
+package study.queryDSL.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.repository.event.MemberSnapshot;
+import study.queryDSL.repository.event.MemberTeamChangeHandler;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.event.TeamSnapshot;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 검색 결과 (search, searchPage*) 를 정규화한 조건 + 페이지를 키로 보관하는 LRU 캐시, 건수와 추정 바이트 둘 다로 제한
+ * 커밋된 Member / Team 변경을 받아 그 변경이 결과에 들어가거나 빠질수 있는 항목만 지운다
+ * - 회원 변경 : 변경 전 또는 후의 값이 조건에 맞는 항목 (페이지는 앞에서 한 건만 바뀌어도 밀리므로 같은 조건의 모든 페이지)
+ * - 팀 변경 : 그 팀 이름이 조건인 항목, 결과에 그 팀 회원이 있는 항목 (teamName 표시)
+ * - 벌크 update/delete : 어떤 행인지 모르므로 전부
+ * 복제 지연으로 replica 에서 읽은 옛 결과가 남지 않게 ttl 이 지나면 다시 읽는다
+ * 이 트랜잭션에 커밋 전 변경이 있으면 캐시를 거치지도, 채우지도 않는다
+ * 없을때 읽는 것은 {@link MemberSearchCoalescer} 를 거쳐 같은 키를 동시에 여러번 읽지 않는다
+ */
+@Component
+public class MemberSearchCache implements MemberTeamChangeHandler {
+
+    // 값이 아니라 의미로 같은 검색이면 같은 키, 빈 문자열 조건은 조건 없음과 같다
+    @lombok.Value
+    public static class Key {
+        String operation;
+        String username;
+        String teamName;
+        Integer ageGoe;
+        Integer ageLoe;
+        long offset; // 페이징 없으면 -1
+        int size;
+        String sort;
+
+        public static Key of(String operation, MemberSearchCondition condition, Pageable pageable) {
+            return new Key(operation,
+                    hasText(condition.getUsername()) ? condition.getUsername() : null,
+                    hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                    condition.getAgeGoe(),
+                    condition.getAgeLoe(),
+                    pageable.isPaged() ? pageable.getOffset() : -1,
+                    pageable.isPaged() ? pageable.getPageSize() : -1,
+                    pageable.getSort().toString());
+        }
+
+        public static Key of(String operation, MemberSearchCondition condition) {
+            return of(operation, condition, Pageable.unpaged());
+        }
+
+        // 회원이 이 조건의 결과에 들어가는지, 팀 이름 조건은 저장할때 풀어둔 팀 id 로 비교
+        boolean matches(MemberSnapshot m, Set<Long> teamIds) {
+            return (username == null || username.equals(m.getUsername()))
+                    && (teamName == null || teamIds.contains(m.getTeamId()))
+                    && (ageGoe == null || m.getAge() >= ageGoe)
+                    && (ageLoe == null || m.getAge() <= ageLoe);
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long bytes;
+        final Set<Long> teamIds; // teamName 조건을 푼 팀 id
+        final Set<Long> resultTeamIds; // 결과에 나온 팀
+        final long expiresAt;
+
+        Entry(Object value, long bytes, Set<Long> teamIds, Set<Long> resultTeamIds, long expiresAt) {
+            this.value = value;
+            this.bytes = bytes;
+            this.teamIds = teamIds;
+            this.resultTeamIds = resultTeamIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final EntityManager em;
+    private final TeamIdResolver teamIdResolver;
+    private final MemberSearchCoalescer coalescer;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true); // 접근 순서 = LRU
+    private long bytes;
+    private long generation; // 무효화마다 증가, 읽는 사이 무효화가 있었으면 그 결과는 넣지 않는다
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public MemberSearchCache(EntityManager em, TeamIdResolver teamIdResolver, MemberSearchCoalescer coalescer,
+                             @Value("${member.search-cache.enabled:true}") boolean enabled,
+                             @Value("${member.search-cache.max-entries:1000}") int maxEntries,
+                             @Value("${member.search-cache.max-size:16MB}") DataSize maxSize,
+                             @Value("${member.search-cache.ttl:60s}") Duration ttl) {
+        this.em = em;
+        this.teamIdResolver = teamIdResolver;
+        this.coalescer = coalescer;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxSize.toBytes();
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * key 의 결과, 없으면 loader 로 읽어서 넣는다 - 결과는 List&lt;MemberTeamDto&gt; 또는 Page&lt;MemberTeamDto&gt;
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> loader) {
+        if (!enabled || MemberTeamEventListener.hasUncommittedChanges(em)) {
+            return coalescer.execute(key, loader);
+        }
+        long loadedAt;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits++;
+                return (T) entry.value;
+            }
+            if (entry != null) {
+                remove(key);
+                expirations++;
+            }
+            misses++;
+            loadedAt = generation;
+        }
+        T value = coalescer.execute(key, () -> unmodifiable(loader.get()));
+        Set<Long> teamIds = key.teamName == null ? Collections.emptySet() : new HashSet<>(teamIdResolver.resolve(key.teamName));
+        put(key, value, teamIds, loadedAt);
+        return value;
+    }
+
+    // 캐시된 목록을 호출한 쪽이 바꾸지 못하게
+    @SuppressWarnings("unchecked")
+    private static <T> T unmodifiable(T value) {
+        return value instanceof List ? (T) Collections.unmodifiableList((List<?>) value) : value;
+    }
+
+    private synchronized void put(Key key, Object value, Set<Long> teamIds, long loadedAt) {
+        // 읽는 사이 커밋된 변경이 있었거나 auto flush 로 이 트랜잭션의 변경이 섞였으면 넣지 않는다
+        // 벌크 chunk 는 닫힐때까지 이벤트 없이 커밋되므로 벌크 중 (쓰기 버전 -1) 에 읽은 결과도 넣지 않는다
+        if (generation != loadedAt || MemberTeamEventListener.hasPendingWrites()
+                || MemberTeamEventListener.writeVersion() < 0) {
+            return;
+        }
+        Collection<MemberTeamDto> rows = rows(value);
+        long size = estimateBytes(rows);
+        if (size > maxBytes) {
+            return;
+        }
+        Set<Long> resultTeamIds = new HashSet<>();
+        for (MemberTeamDto row : rows) {
+            if (row.getTeamId() != null) {
+                resultTeamIds.add(row.getTeamId());
+            }
+        }
+        remove(key);
+        entries.put(key, new Entry(value, size, teamIds, resultTeamIds, System.nanoTime() + ttlNanos));
+        bytes += size;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    @Override
+    public synchronized void memberChanged(MemberSnapshot before, MemberSnapshot after) {
+        invalidate((key, entry) -> (before != null && key.matches(before, entry.teamIds))
+                || (after != null && key.matches(after, entry.teamIds)));
+    }
+
+    @Override
+    public synchronized void teamChanged(TeamSnapshot before, TeamSnapshot after) {
+        Long teamId = before != null ? before.getId() : after.getId();
+        String beforeName = before != null ? before.getName() : null;
+        String afterName = after != null ? after.getName() : null;
+        invalidate((key, entry) -> entry.resultTeamIds.contains(teamId)
+                || (key.teamName != null && (key.teamName.equals(beforeName) || key.teamName.equals(afterName))));
+    }
+
+    @Override
+    public synchronized void bulkChanged() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+        bytes = 0;
+    }
+
+    private interface EntryPredicate {
+        boolean test(Key key, Entry entry);
+    }
+
+    private void invalidate(EntryPredicate affected) {
+        generation++;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (affected.test(e.getKey(), e.getValue())) {
+                bytes -= e.getValue().bytes;
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.bytes;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<MemberTeamDto> rows(Object value) {
+        if (value instanceof Page) {
+            return ((Page<MemberTeamDto>) value).getContent();
+        }
+        return (Collection<MemberTeamDto>) value;
+    }
+
+    // 64bit JVM, compressed oops 기준 대략의 크기 - 키와 LinkedHashMap 항목 포함
+    static long estimateBytes(Collection<MemberTeamDto> rows) {
+        long size = 256;
+        for (MemberTeamDto row : rows) {
+            size += 40 + 16 + 16 + 4 // dto + Long 2개 + 참조
+                    + stringBytes(row.getUsername()) + stringBytes(row.getTeamName());
+        }
+        return size;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized double hitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
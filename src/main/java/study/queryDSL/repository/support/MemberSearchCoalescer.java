@@ -0,0 +1,128 @@
+package study.queryDSL.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.queryDSL.datasource.ReadYourWrites;
+import study.queryDSL.repository.event.MemberSnapshot;
+import study.queryDSL.repository.event.MemberTeamChangeHandler;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.event.TeamSnapshot;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 같은 검색 (정규화된 조건 + 페이지) 이 동시에 여러번 들어오면 먼저 온 호출만 DB 에 가고 나머지는 그 결과를 나눠 받는다
+ * - 기다리는 호출은 timeout 까지만 기다리고 넘으면 직접 실행한다 (느린 한 건에 모두 묶이지 않게)
+ * - 먼저 온 호출이 실패하면 기다리던 호출도 같은 예외
+ * - 커밋된 변경이 있으면 그 전에 시작한 실행에는 더 붙지 않는다, 변경 후에 온 호출이 변경 전 결과를 받지 않게
+ * - 커밋 전 변경이 있는 트랜잭션, 쓰기 후 primary 로 읽어야 하는 요청은 자기 시야가 따로라 합치지 않는다
+ */
+@Slf4j
+@Component
+public class MemberSearchCoalescer implements MemberTeamChangeHandler {
+
+    private final EntityManager em;
+    private final long defaultTimeoutNanos;
+    private final ConcurrentHashMap<MemberSearchCache.Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public MemberSearchCoalescer(EntityManager em, @Value("${member.coalescing.timeout:5s}") Duration timeout) {
+        this.em = em;
+        this.defaultTimeoutNanos = timeout.toNanos();
+    }
+
+    public <T> T execute(MemberSearchCache.Key key, Supplier<T> loader) {
+        return execute(key, Duration.ofNanos(defaultTimeoutNanos), loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(MemberSearchCache.Key key, Duration timeout, Supplier<T> loader) {
+        if (ReadYourWrites.isSticky() || MemberTeamEventListener.hasUncommittedChanges(em)) {
+            executions.incrementAndGet();
+            return loader.get();
+        }
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            return (T) lead(key, flight, loader);
+        }
+        deduplicated.incrementAndGet();
+        try {
+            return (T) existing.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            log.warn("coalesced search {} did not finish in {} ms, running it again", key, timeout.toMillis());
+            executions.incrementAndGet();
+            return loader.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for " + key, e);
+        }
+    }
+
+    private Object lead(MemberSearchCache.Key key, CompletableFuture<Object> flight, Supplier<?> loader) {
+        executions.incrementAndGet();
+        try {
+            Object value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight); // 변경으로 이미 빠졌고 새 실행이 들어와 있으면 그대로 둔다
+        }
+    }
+
+    @Override
+    public void memberChanged(MemberSnapshot before, MemberSnapshot after) {
+        inFlight.clear();
+    }
+
+    @Override
+    public void teamChanged(TeamSnapshot before, TeamSnapshot after) {
+        inFlight.clear();
+    }
+
+    @Override
+    public void bulkChanged() {
+        inFlight.clear();
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getDeduplicated() {
+        return deduplicated.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
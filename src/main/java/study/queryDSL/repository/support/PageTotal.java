@@ -0,0 +1,24 @@
+package study.queryDSL.repository.support;
+
+import lombok.Getter;
+
+/**
+ * {@link CountStrategy} 로 구한 총 건수와 그 값이 정확한지
+ */
+@Getter
+public final class PageTotal {
+
+    private final long total;
+    private final boolean exact;
+    private final CountStrategy.Type strategy; // 실제로 총 건수를 만든 방법, 요청한 전략과 다를수 있다 (ex. 최적화 못하는 쿼리는 EXACT)
+
+    public PageTotal(long total, boolean exact, CountStrategy.Type strategy) {
+        this.total = total;
+        this.exact = exact;
+        this.strategy = strategy;
+    }
+
+    public static PageTotal exact(long total) {
+        return new PageTotal(total, true, CountStrategy.Type.EXACT);
+    }
+}
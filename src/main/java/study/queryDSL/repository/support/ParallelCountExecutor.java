@@ -0,0 +1,211 @@
+package study.queryDSL.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.datasource.ReadYourWrites;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 페이지 조회의 카운트 쿼리를 별도 스레드 (별도 커넥션, 읽기 전용 트랜잭션) 에서 컨텐츠 쿼리와 동시에 실행
+ * PageableExecutionUtils 가 카운트가 필요 없다고 판단하면 (마지막 페이지 등) 실행중인 카운트 쿼리를 취소한다
+ *
+ * 순차 실행으로 돌아가는 경우
+ * - member.page.parallel-count.enabled=false
+ * - 현재 트랜잭션에 커밋 전 Member/Team 변경이 있을때 (다른 커넥션에서는 보이지 않으므로)
+ * - 작업 큐가 가득 찼을때
+ * - 컨텐츠 조회가 끝났는데 카운트 스레드가 아직 커넥션을 얻지 못했을때 (호출한 스레드가 직접 센다)
+ * 카운트 스레드도 커넥션을 하나씩 쓰므로 threads 는 커넥션 풀 크기보다 충분히 작게 둔다
+ */
+@Slf4j
+@Component
+public class ParallelCountExecutor {
+
+    private final EntityManager em;
+    private final TransactionTemplate countTransaction;
+    private final boolean enabled;
+    private final ThreadPoolExecutor executor;
+
+    public ParallelCountExecutor(EntityManager em, PlatformTransactionManager transactionManager,
+                                 @Value("${member.page.parallel-count.enabled:true}") boolean enabled,
+                                 @Value("${member.page.parallel-count.threads:4}") int threads,
+                                 @Value("${member.page.parallel-count.queue-capacity:64}") int queueCapacity) {
+        this.em = em;
+        this.countTransaction = new TransactionTemplate(transactionManager);
+        this.countTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.countTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "page-count-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * content 는 호출한 스레드에서, count 는 카운트 스레드에서 실행해 Page 를 만든다
+     * count 는 호출한 쪽의 트랜잭션, 영속성 컨텍스트를 볼수 없으므로 주입받은 EntityManager (공유 프록시) 로만 조회해야 한다
+     */
+    public <T> Page<T> getPage(Pageable pageable, Supplier<List<T>> content, LongSupplier count) {
+        CountTask task = submit(pageable, count);
+        if (task == null) {
+            return PageableExecutionUtils.getPage(content.get(), pageable, count);
+        }
+        List<T> result;
+        try {
+            result = content.get();
+        } catch (RuntimeException e) {
+            task.cancel();
+            throw e;
+        }
+        Page<T> page = PageableExecutionUtils.getPage(result, pageable, task::await);
+        if (!task.awaited) {
+            task.cancel(); // 컨텐츠 크기로 total 을 알수 있는 경우
+        }
+        return page;
+    }
+
+    /**
+     * getPage 와 같지만 count 가 {@link CountEstimator} 의 결과, 어떤 전략으로 구한 값인지 함께 돌려준다
+     * 컨텐츠 크기로 total 을 알수 있어 count 를 건너뛰면 정확한 값이고 전략은 requested 그대로
+     */
+    public <T> CountedPage<T> getCountedPage(Pageable pageable, Supplier<List<T>> content, Supplier<PageTotal> count,
+                                             CountStrategy.Type requested) {
+        AtomicReference<PageTotal> total = new AtomicReference<>();
+        Page<T> page = getPage(pageable, content, () -> {
+            PageTotal counted = count.get();
+            total.set(counted);
+            return counted.getTotal();
+        });
+        PageTotal counted = countUsed(pageable, page.getNumberOfElements()) ? total.get() : null;
+        return counted == null
+                ? new CountedPage<>(page, requested, true)
+                : new CountedPage<>(page, counted.getStrategy(), counted.isExact());
+    }
+
+    // PageableExecutionUtils 가 count 를 부르는 경우 - 꽉 찬 페이지이거나 첫 페이지가 아닌데 비어 있을때
+    private static boolean countUsed(Pageable pageable, int contentSize) {
+        if (pageable.isUnpaged()) {
+            return false;
+        }
+        return contentSize == pageable.getPageSize() || (contentSize == 0 && pageable.getOffset() > 0);
+    }
+
+    private CountTask submit(Pageable pageable, LongSupplier count) {
+        if (!enabled || pageable.isUnpaged() || MemberTeamEventListener.hasUncommittedChanges(em)) {
+            return null;
+        }
+        CountTask task = new CountTask(count);
+        try {
+            Supplier<Long> run = ReadYourWrites.propagate(task::run); // 카운트 스레드도 요청의 read-your-writes 범위로
+            task.future = executor.submit(run::get);
+        } catch (RejectedExecutionException e) {
+            log.debug("count executor saturated, counting sequentially");
+            return null;
+        }
+        return task;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final class CountTask {
+
+        private static final int NEW = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private final LongSupplier count;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        private Future<Long> future;
+        private volatile Session session; // 실행중인 카운트 쿼리를 취소하기 위해
+        private boolean awaited;
+
+        CountTask(LongSupplier count) {
+            this.count = count;
+        }
+
+        Long run() {
+            if (state.get() != NEW) {
+                return 0L;
+            }
+            return countTransaction.execute(status -> {
+                // 커넥션을 얻는 사이 호출한 스레드가 직접 세기로 했거나 취소됐으면 그냥 끝낸다
+                if (!state.compareAndSet(NEW, RUNNING)) {
+                    return 0L;
+                }
+                session = em.unwrap(Session.class);
+                try {
+                    return count.getAsLong();
+                } finally {
+                    session = null;
+                }
+            });
+        }
+
+        long await() {
+            awaited = true;
+            if (state.compareAndSet(NEW, CANCELLED)) {
+                // 카운트 스레드가 아직 커넥션을 얻지 못했으면 호출한 스레드에서 직접 센다
+                // 호출한 쪽이 커넥션을 쥔 채 (open-in-view 등) 다른 커넥션을 기다리며 풀이 고갈되는 것을 막는다
+                future.cancel(false);
+                return count.getAsLong();
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("count query interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        void cancel() {
+            future.cancel(false); // 아직 시작 전이면 실행되지 않는다
+            if (state.getAndSet(CANCELLED) != RUNNING) {
+                return;
+            }
+            Session running = session;
+            if (running != null) {
+                try {
+                    running.cancelQuery(); // JDBC Statement.cancel
+                } catch (HibernateException e) {
+                    log.debug("count query cancel failed", e);
+                }
+            }
+        }
+    }
+}
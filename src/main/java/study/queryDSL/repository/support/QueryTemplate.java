@@ -0,0 +1,150 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Param 으로 값 자리를 비워둔 querydsl 쿼리를 한번만 JPQL 문자열로 직렬화 해둔 것
+ * 실행할때는 문자열을 그대로 쓰고 값만 바인딩한다 - JPQL 이 매번 같으므로 하이버네이트 쿼리 플랜 캐시도 적중
+ */
+public class QueryTemplate<T> {
+
+    private final String jpql;
+    private final Map<Object, String> constants;
+    private final String countJpql;
+    private final Map<Object, String> countConstants;
+    private final FactoryExpression<T> projection; // dto 프로젝션이면 Object[] 를 dto 로 변환, 엔티티 조회면 null
+    private final String idJpql; // 같은 조건의 루트 id, CAPPED / ESTIMATED 카운트용, 최적화 할수 없는 쿼리면 null
+    private final String orderedIdJpql;
+    private final Map<Object, String> idConstants;
+
+    @SuppressWarnings("unchecked")
+    public QueryTemplate(QueryMetadata metadata, JPQLTemplates templates, EntityManager em) {
+        JPQLSerializer serializer = new JPQLSerializer(templates, em);
+        serializer.serialize(metadata, false, null);
+        this.jpql = serializer.toString();
+        this.constants = new HashMap<>(serializer.getConstantToAllLabels());
+
+        JPQLSerializer countSerializer = new JPQLSerializer(templates, em);
+        QueryMetadata countMetadata = CountQueryOptimizer.optimize(metadata, em);
+        if (countMetadata != null) {
+            countSerializer.serialize(countMetadata, false, null);
+        } else {
+            countMetadata = metadata.clone();
+            countMetadata.clearOrderBy();
+            countSerializer.serialize(countMetadata, true, null);
+        }
+        this.countJpql = countSerializer.toString();
+        this.countConstants = new HashMap<>(countSerializer.getConstantToAllLabels());
+
+        QueryMetadata idMetadata = CountQueryOptimizer.ids(metadata, em, false);
+        if (idMetadata != null) {
+            JPQLSerializer idSerializer = new JPQLSerializer(templates, em);
+            idSerializer.serialize(idMetadata, false, null);
+            JPQLSerializer orderedIdSerializer = new JPQLSerializer(templates, em);
+            orderedIdSerializer.serialize(CountQueryOptimizer.ids(metadata, em, true), false, null);
+            this.idJpql = idSerializer.toString();
+            this.orderedIdJpql = orderedIdSerializer.toString();
+            this.idConstants = new HashMap<>(idSerializer.getConstantToAllLabels());
+        } else {
+            this.idJpql = null;
+            this.orderedIdJpql = null;
+            this.idConstants = null;
+        }
+
+        Expression<?> select = metadata.getProjection();
+        this.projection = select instanceof FactoryExpression ? (FactoryExpression<T>) select : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<T> fetch(EntityManager em, Map<ParamExpression<?>, Object> params, long offset, int limit) {
+        Query query = em.createQuery(jpql);
+        JPAUtil.setConstants(query, constants, params);
+        if (offset > 0) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit >= 0) {
+            query.setMaxResults(limit);
+        }
+        List<?> rows = query.getResultList();
+        if (projection == null) {
+            return (List<T>) rows;
+        }
+        List<T> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(projection.newInstance(row instanceof Object[] ? (Object[]) row : new Object[]{row}));
+        }
+        return result;
+    }
+
+    public List<T> fetch(EntityManager em, Map<ParamExpression<?>, Object> params) {
+        return fetch(em, params, 0, -1);
+    }
+
+    /**
+     * fetch 와 같은 쿼리를 JDBC ResultSet 에서 한 행씩 (FORWARD_ONLY) 읽어 row 로 넘긴다, 결과 목록이나 dto 를 만들지 않는다
+     * row 에 넘기는 배열은 projection 의 select 순서 그대로, 다음 행에서 재사용될수 있으므로 값만 꺼내 쓴다
+     */
+    public void scroll(EntityManager em, Map<ParamExpression<?>, Object> params, long offset, int limit, int fetchSize,
+                       Consumer<Object[]> row) {
+        Query query = em.createQuery(jpql);
+        JPAUtil.setConstants(query, constants, params);
+        if (offset > 0) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit >= 0) {
+            query.setMaxResults(limit);
+        }
+        org.hibernate.query.Query<?> hibernateQuery = query.unwrap(org.hibernate.query.Query.class);
+        hibernateQuery.setFetchSize(fetchSize);
+        hibernateQuery.setReadOnly(true);
+        try (ScrollableResults results = hibernateQuery.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                row.accept(results.get());
+            }
+        }
+    }
+
+    public long fetchCount(EntityManager em, Map<ParamExpression<?>, Object> params) {
+        Query query = em.createQuery(countJpql);
+        JPAUtil.setConstants(query, countConstants, params);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * 조건에 맞는 루트 id 최대 limit 건, orderById 면 id 오름차순 - 카운트 없이 건수를 가늠할때 사용
+     * group by 등으로 id 쿼리를 만들수 없는 템플릿이면 null
+     */
+    public List<?> fetchIds(EntityManager em, Map<ParamExpression<?>, Object> params, int limit, boolean orderById) {
+        if (idJpql == null) {
+            return null;
+        }
+        Query query = em.createQuery(orderById ? orderedIdJpql : idJpql);
+        JPAUtil.setConstants(query, idConstants, params);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    public String getJpql() {
+        return jpql;
+    }
+
+    public String getCountJpql() {
+        return countJpql;
+    }
+}
@@ -0,0 +1,63 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 쿼리 모양(어떤 조건이 있는지, 정렬) 을 키로 {@link QueryTemplate} 을 보관
+ */
+@Component
+public class QueryTemplateCache {
+
+    static final int MAX_TEMPLATES = 512; // 정렬 조합처럼 키가 계속 늘어날수 있는 경우를 대비한 상한
+
+    private final EntityManager em;
+    private final JPQLTemplates templates;
+    private final Map<String, QueryTemplate<?>> cache = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public QueryTemplateCache(EntityManager em) {
+        this.em = em;
+        this.templates = JPAProvider.getTemplates(em);
+    }
+
+    /**
+     * key 에 해당하는 템플릿, 없으면 query 로 만든다
+     * query 는 값 대신 Param 을 사용해야 한다 - 상수를 넣으면 첫 호출의 값이 템플릿에 굳어진다
+     */
+    @SuppressWarnings("unchecked")
+    public <T> QueryTemplate<T> get(String key, Supplier<JPAQuery<T>> query) {
+        QueryTemplate<T> template = (QueryTemplate<T>) cache.get(key);
+        if (template != null) {
+            hits.incrementAndGet();
+            return template;
+        }
+        misses.incrementAndGet();
+        template = new QueryTemplate<>(query.get().getMetadata(), templates, em);
+        if (cache.size() < MAX_TEMPLATES) {
+            cache.putIfAbsent(key, template);
+        }
+        return template;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
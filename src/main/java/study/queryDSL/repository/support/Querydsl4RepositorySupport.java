@@ -6,12 +6,14 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import
 org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
-import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 import javax.annotation.PostConstruct;
@@ -31,6 +33,9 @@ public abstract class Querydsl4RepositorySupport {
    private Querydsl querydsl;
    private EntityManager entityManager;
    private JPAQueryFactory queryFactory;
+   private ParallelCountExecutor countExecutor;
+   private CountEstimator countEstimator;
+   private String idAttribute;
    public Querydsl4RepositorySupport(Class<?> domainClass) {
     Assert.notNull(domainClass, "Domain class must not be null!");
     this.domainClass = domainClass; }
@@ -41,16 +46,27 @@ public abstract class Querydsl4RepositorySupport {
             JpaEntityInformationSupport.getEntityInformation(domainClass, entityManager);
     SimpleEntityPathResolver resolver = SimpleEntityPathResolver.INSTANCE;
     EntityPath path = resolver.createPath(entityInformation.getJavaType());
+    this.idAttribute = entityInformation.getIdAttribute().getName();
     this.entityManager = entityManager;
     this.querydsl = new Querydsl(entityManager, new
             PathBuilder<>(path.getType(), path.getMetadata()));
     this.queryFactory = new JPAQueryFactory(entityManager);
    }
+   @Autowired
+   public void setCountExecutor(ParallelCountExecutor countExecutor) {
+    this.countExecutor = countExecutor;
+   }
+   @Autowired
+   public void setCountEstimator(CountEstimator countEstimator) {
+    this.countEstimator = countEstimator;
+   }
    @PostConstruct
    public void validate() {
     Assert.notNull(entityManager, "EntityManager must not be null!");
     Assert.notNull(querydsl, "Querydsl must not be null!");
     Assert.notNull(queryFactory, "QueryFactory must not be null!");
+    Assert.notNull(countExecutor, "CountExecutor must not be null!");
+    Assert.notNull(countEstimator, "CountEstimator must not be null!");
    }
    protected JPAQueryFactory getQueryFactory() {
     return queryFactory;
@@ -61,6 +77,9 @@ public abstract class Querydsl4RepositorySupport {
    protected EntityManager getEntityManager() {
     return entityManager;
    }
+   protected ParallelCountExecutor getCountExecutor() {
+    return countExecutor;
+   }
    protected <T> JPAQuery<T> select(Expression<T> expr) {
     return getQueryFactory().select(expr);
    } protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
@@ -69,10 +88,12 @@ public abstract class Querydsl4RepositorySupport {
    protected <T> Page<T> applyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery) {
 
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+        JPAQuery countSource = jpaQuery.clone(getEntityManager()); // 페이징 적용 전 상태로, 카운트 스레드에서 사용
 
-        List<T> content = getQuerydsl().applyPagination(pageable,jpaQuery).fetch();
-
-        return PageableExecutionUtils.getPage(content, pageable,jpaQuery::fetchCount);
+        // 카운트는 컨텐츠 쿼리에서 정렬, fetch join, 참조하지 않는 to-one left join 을 뺀 count(id) 쿼리로 컨텐츠 쿼리와 동시에
+        return countExecutor.getPage(pageable,
+                () -> getQuerydsl().applyPagination(pageable,jpaQuery).fetch(),
+                () -> CountQueryOptimizer.fetchCount(countSource, getEntityManager()));
    }
 
    protected <T> Page<T> applyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery,
@@ -80,10 +101,50 @@ public abstract class Querydsl4RepositorySupport {
 
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
 
-        List<T> content = getQuerydsl().applyPagination(pageable,jpaContentQuery).fetch();
+        // 카운트 쿼리는 카운트 스레드에서 만들고 실행
+        return countExecutor.getPage(pageable,
+                () -> getQuerydsl().applyPagination(pageable,jpaContentQuery).fetch(),
+                () -> countQuery.apply(getQueryFactory()).fetchCount());
+   }
+
+   // 총 건수를 strategy 로 구한다 - CAPPED / ESTIMATED 는 카운트 쿼리 대신 같은 조건의 id 만 읽고, NONE 은 세지 않는다
+   protected <T> CountedPage<T> applyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery,
+                                                CountStrategy strategy) {
+
+        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+        if (strategy.getType() == CountStrategy.Type.NONE) {
+            getQuerydsl().applySorting(pageable.getSort(), jpaQuery);
+            if (pageable.isPaged()) {
+                jpaQuery.offset(pageable.getOffset());
+                jpaQuery.limit(pageable.getPageSize() + 1);
+            }
+            List<T> rows = jpaQuery.fetch();
+            return CountedPage.uncounted(rows, pageable);
+        }
+        JPAQuery countSource = jpaQuery.clone(getEntityManager());
+        Class<?> rootType = ((JPAQuery<?>) countSource).getMetadata().getJoins().get(0).getTarget().getType();
+        return countExecutor.getCountedPage(pageable,
+                () -> getQuerydsl().applyPagination(pageable,jpaQuery).fetch(),
+                () -> countEstimator.count(strategy, rootType,
+                        (limit, orderById) -> CountQueryOptimizer.fetchIds(countSource, getEntityManager(), limit, orderById),
+                        () -> CountQueryOptimizer.fetchCount(countSource, getEntityManager())),
+                strategy.getType());
+   }
 
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
+   // 카운트 쿼리 없이 size + 1 건을 읽어 다음 페이지 여부만 판단 (무한 스크롤)
+   protected <T> Slice<T> applySlicing(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery) {
 
-        return PageableExecutionUtils.getPage(content, pageable,countResult::fetchCount);
+        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+        // 정렬 값이 같은 행의 순서를 유일한 id 로 고정, 그래야 offset 으로 넘긴 페이지끼리 겹치거나 빠지지 않는다
+        Sort sort = pageable.getSort();
+        getQuerydsl().applySorting(sort.getOrderFor(idAttribute) != null ? sort : sort.and(Sort.by(idAttribute)), jpaQuery);
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<T>(jpaQuery.fetch(), pageable, false);
+        }
+        jpaQuery.offset(pageable.getOffset());
+        jpaQuery.limit(pageable.getPageSize() + 1);
+        List<T> content = jpaQuery.fetch();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,386 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.datasource.PrimaryReadTransactionTemplate;
+import study.queryDSL.dto.TeamStatsDto;
+import study.queryDSL.repository.event.MemberSnapshot;
+import study.queryDSL.repository.event.MemberTeamChangeHandler;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.event.TeamSnapshot;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * 팀별 회원 수, 나이 합계/최소/최대를 커밋 이벤트로 갱신해 두고 group by 없이 O(1) 로 답한다
+ * 팀 하나가 배열의 칸 하나, 최소/최대는 나이별 인원 (TreeMap) 으로 쓸때 다시 구해 두므로 읽기는 배열 조회뿐
+ * 벌크 update/delete 는 어떤 행이 바뀌었는지 모르므로 다음 조회때 다시 적재하고,
+ * 이벤트 유실 등으로 어긋나지 않았는지 주기적으로 SQL 집계와 맞춰보고 다르면 SQL 값으로 바꾼다
+ * 집계는 커밋 이벤트가 제자리에서 고치므로 읽기도 같은 잠금 안에서 한다 - 읽기는 배열 몇 칸이라 잠금을 오래 잡지 않는다
+ */
+@Slf4j
+@Component
+public class TeamAggregateStore implements MemberTeamChangeHandler {
+
+    private static final long NO_TEAM = -1L; // 팀 없는 회원, 전체 집계에만 들어간다
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate loadTransaction;
+    private final boolean enabled;
+
+    private Aggregates aggregates; // null 이면 다음 조회때 적재
+    private boolean loading;
+    private boolean changedDuringLoad;
+    private long corrections; // 맞춰보기에서 SQL 과 달랐던 팀 수
+
+    public TeamAggregateStore(EntityManager em, JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+                              @Value("${member.team-stats.enabled:true}") boolean enabled) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.loadTransaction = new PrimaryReadTransactionTemplate(transactionManager); // 커밋된 데이터만, 이벤트와 같은 primary 에서
+        this.enabled = enabled;
+    }
+
+    // 팀 하나, 없는 팀이면 empty
+    public Optional<TeamStatsDto> team(Long teamId) {
+        return Optional.ofNullable(read(loaded -> loaded.stats(teamId)));
+    }
+
+    // 이름이 같은 팀들을 합친 값 - groupBy(team.name) 과 같다, 없는 이름이면 empty
+    public Optional<TeamStatsDto> teamName(String teamName) {
+        return Optional.ofNullable(read(loaded -> loaded.statsByName(teamName)));
+    }
+
+    // 팀마다 (이름, id 순), 회원이 없는 팀도 count 0 으로
+    public List<TeamStatsDto> teams() {
+        return read(Aggregates::allTeams);
+    }
+
+    // 팀 없는 회원까지 전체 - member 테이블 전체 집계와 같다
+    public TeamStatsDto all() {
+        return read(Aggregates::total);
+    }
+
+    /**
+     * 적재된 값에서 잠근 채로 읽는다, 쓸수 없으면 (꺼짐, 적재 중, 이 트랜잭션에 커밋 전 변경) 이 트랜잭션에서 SQL 로 집계한 값에서
+     */
+    private <T> T read(Function<Aggregates, T> reader) {
+        if (!enabled || MemberTeamEventListener.hasUncommittedChanges(em)) {
+            return reader.apply(query(queryFactory)); // 이 호출만의 집계라 잠글 필요 없다
+        }
+        synchronized (this) {
+            if (aggregates != null) {
+                return reader.apply(aggregates);
+            }
+        }
+        if (load() == null) {
+            return reader.apply(query(queryFactory));
+        }
+        synchronized (this) {
+            // 적재 직후 벌크 무효화가 들어왔으면 SQL 로
+            return aggregates != null ? reader.apply(aggregates) : reader.apply(query(queryFactory));
+        }
+    }
+
+    /**
+     * primary 에서 SQL 집계로 다시 적재, 적재와 겹쳐 커밋된 쓰기가 있으면 이번 적재는 버린다 (MemberCountIndex 와 같은 방식)
+     * 겹친 커밋은 스냅샷에 들어갔는지 알수 없어 이후 도착하는 이벤트를 더하면 두번 세게 된다
+     */
+    private Aggregates load() {
+        long version = MemberTeamEventListener.writeVersion();
+        synchronized (this) {
+            if (loading || version < 0) { // 다른 스레드가 적재 중이거나 커밋 중인 쓰기가 있으면 이번에는 SQL 로
+                return null;
+            }
+            loading = true;
+            changedDuringLoad = false;
+        }
+        try {
+            Aggregates loaded = loadTransaction.execute(status -> query(queryFactory));
+            synchronized (this) {
+                if (changedDuringLoad || MemberTeamEventListener.writeVersion() != version) {
+                    log.debug("team aggregate load discarded, concurrent change detected");
+                    return null;
+                }
+                if (aggregates != null) {
+                    int differences = aggregates.differences(loaded);
+                    if (differences > 0) {
+                        corrections += differences;
+                        log.warn("team aggregates differed from SQL for {} teams, replaced", differences);
+                    }
+                }
+                aggregates = loaded;
+                return loaded;
+            }
+        } finally {
+            synchronized (this) {
+                loading = false;
+            }
+        }
+    }
+
+    /**
+     * 주기적으로 primary 의 SQL 집계와 맞춰본다, 적재 전이면 아무것도 하지 않는다
+     * 커밋 중인 쓰기가 있거나 맞춰보는 사이 변경이 있었으면 이번 회차는 건너뛰고 다음 회차에
+     * @return SQL 과 달랐던 팀 수, 건너뛰었으면 -1
+     */
+    @Scheduled(fixedDelayString = "${member.team-stats.reconcile-interval:PT5M}",
+            initialDelayString = "${member.team-stats.reconcile-interval:PT5M}")
+    public int reconcile() {
+        long before;
+        synchronized (this) {
+            if (aggregates == null) {
+                return 0;
+            }
+            before = corrections;
+        }
+        if (load() == null) {
+            return -1;
+        }
+        synchronized (this) {
+            return (int) (corrections - before);
+        }
+    }
+
+    private static Aggregates query(JPAQueryFactory queryFactory) {
+        Aggregates result = new Aggregates();
+        for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+            result.putTeam(row.get(team.id), row.get(team.name));
+        }
+        List<Tuple> rows = queryFactory
+                .select(member.team.id, member.age, member.count())
+                .from(member)
+                .groupBy(member.team.id, member.age)
+                .fetch();
+        for (Tuple row : rows) {
+            result.add(row.get(member.team.id), row.get(member.age), row.get(member.count()));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void memberChanged(MemberSnapshot before, MemberSnapshot after) {
+        changedDuringLoad = true;
+        if (aggregates == null) {
+            return;
+        }
+        if (before != null) {
+            aggregates.add(before.getTeamId(), before.getAge(), -1);
+        }
+        if (after != null) {
+            aggregates.add(after.getTeamId(), after.getAge(), 1);
+        }
+    }
+
+    @Override
+    public synchronized void teamChanged(TeamSnapshot before, TeamSnapshot after) {
+        changedDuringLoad = true;
+        if (aggregates == null) {
+            return;
+        }
+        if (after == null) {
+            aggregates.removeTeam(before.getId());
+        } else {
+            aggregates.putTeam(after.getId(), after.getName());
+        }
+    }
+
+    @Override
+    public synchronized void bulkChanged() {
+        changedDuringLoad = true;
+        aggregates = null; // 다음 조회때 다시 적재
+    }
+
+    public synchronized long getCorrections() {
+        return corrections;
+    }
+
+    /**
+     * 팀 id -> 칸 번호, 칸마다 회원 수 / 나이 합 / 최소 / 최대를 기본형 배열에
+     * 칸 0 은 팀 없는 회원, 전체 값은 따로 유지
+     */
+    private static final class Aggregates {
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private final Map<String, List<Long>> teamIdsByName = new HashMap<>();
+        private final List<TreeMap<Integer, Long>> ages = new ArrayList<>(); // 최소/최대를 다시 구하기 위한 나이별 인원
+        private final TreeMap<Integer, Long> allAges = new TreeMap<>();
+        private long[] teamIds = new long[16];
+        private String[] names = new String[16];
+        private long[] counts = new long[16];
+        private long[] sums = new long[16];
+        private int[] mins = new int[16];
+        private int[] maxs = new int[16];
+        private long allCount;
+        private long allSum;
+
+        Aggregates() {
+            slot(NO_TEAM);
+        }
+
+        void putTeam(Long teamId, String name) {
+            int slot = slot(teamId);
+            removeName(teamId, names[slot]);
+            names[slot] = name;
+            teamIdsByName.computeIfAbsent(name, k -> new ArrayList<>()).add(teamId);
+        }
+
+        void removeTeam(Long teamId) {
+            Integer slot = slots.get(teamId);
+            if (slot != null) {
+                removeName(teamId, names[slot]);
+                names[slot] = null;
+            }
+        }
+
+        void add(Long teamId, int age, long delta) {
+            int slot = slot(teamId == null ? NO_TEAM : teamId);
+            counts[slot] += delta;
+            sums[slot] += age * delta;
+            TreeMap<Integer, Long> teamAges = ages.get(slot);
+            addAge(teamAges, age, delta);
+            if (!teamAges.isEmpty()) {
+                mins[slot] = teamAges.firstKey();
+                maxs[slot] = teamAges.lastKey();
+            }
+            allCount += delta;
+            allSum += age * delta;
+            addAge(allAges, age, delta);
+        }
+
+        TeamStatsDto stats(Long teamId) {
+            Integer slot = slots.get(teamId);
+            return slot == null || names[slot] == null ? null : stats(slot);
+        }
+
+        TeamStatsDto statsByName(String name) {
+            List<Long> ids = teamIdsByName.get(name);
+            if (ids == null) {
+                return null;
+            }
+            long count = 0;
+            long sum = 0;
+            Integer min = null;
+            Integer max = null;
+            for (Long teamId : ids) {
+                int slot = slots.get(teamId);
+                if (counts[slot] == 0) {
+                    continue;
+                }
+                count += counts[slot];
+                sum += sums[slot];
+                min = min == null ? mins[slot] : Math.min(min, mins[slot]);
+                max = max == null ? maxs[slot] : Math.max(max, maxs[slot]);
+            }
+            return new TeamStatsDto(ids.size() == 1 ? ids.get(0) : null, name, count, sum, min, max);
+        }
+
+        List<TeamStatsDto> allTeams() {
+            List<TeamStatsDto> result = new ArrayList<>();
+            for (int slot = 1; slot < slots.size(); slot++) {
+                if (names[slot] != null) {
+                    result.add(stats(slot));
+                }
+            }
+            result.sort(Comparator.comparing(TeamStatsDto::getTeamName).thenComparing(TeamStatsDto::getTeamId));
+            return result;
+        }
+
+        TeamStatsDto total() {
+            return new TeamStatsDto(null, null, allCount, allSum,
+                    allAges.isEmpty() ? null : allAges.firstKey(), allAges.isEmpty() ? null : allAges.lastKey());
+        }
+
+        // other 와 값이 다른 팀 수 (팀 없는 회원 칸 포함)
+        int differences(Aggregates other) {
+            int differences = 0;
+            for (Long teamId : union(slots, other.slots)) {
+                if (!Objects.equals(exact(teamId), other.exact(teamId))) {
+                    differences++;
+                }
+            }
+            return differences;
+        }
+
+        private TeamStatsDto exact(Long teamId) {
+            Integer slot = slots.get(teamId);
+            if (slot == null || (counts[slot] == 0 && names[slot] == null)) {
+                return null; // 지워진 팀, 회원도 없는 팀 없음 칸
+            }
+            return stats(slot);
+        }
+
+        private TeamStatsDto stats(int slot) {
+            boolean empty = counts[slot] == 0;
+            return new TeamStatsDto(teamIds[slot] == NO_TEAM ? null : teamIds[slot], names[slot], counts[slot], sums[slot],
+                    empty ? null : mins[slot], empty ? null : maxs[slot]);
+        }
+
+        private int slot(long teamId) {
+            Integer slot = slots.get(teamId);
+            if (slot != null) {
+                return slot;
+            }
+            int next = slots.size();
+            if (next == counts.length) {
+                int size = next * 2;
+                teamIds = Arrays.copyOf(teamIds, size);
+                names = Arrays.copyOf(names, size);
+                counts = Arrays.copyOf(counts, size);
+                sums = Arrays.copyOf(sums, size);
+                mins = Arrays.copyOf(mins, size);
+                maxs = Arrays.copyOf(maxs, size);
+            }
+            slots.put(teamId, next);
+            teamIds[next] = teamId;
+            ages.add(new TreeMap<>());
+            return next;
+        }
+
+        private void removeName(Long teamId, String name) {
+            List<Long> ids = teamIdsByName.get(name);
+            if (ids != null) {
+                ids.remove(teamId);
+                if (ids.isEmpty()) {
+                    teamIdsByName.remove(name);
+                }
+            }
+        }
+
+        private static void addAge(TreeMap<Integer, Long> ages, int age, long delta) {
+            ages.merge(age, delta, Long::sum);
+            if (ages.get(age) == 0) {
+                ages.remove(age);
+            }
+        }
+
+        private static List<Long> union(Map<Long, Integer> a, Map<Long, Integer> b) {
+            List<Long> keys = new ArrayList<>(a.keySet());
+            for (Long key : b.keySet()) {
+                if (!a.containsKey(key)) {
+                    keys.add(key);
+                }
+            }
+            return keys;
+        }
+    }
+}
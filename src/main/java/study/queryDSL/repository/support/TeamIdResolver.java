@@ -0,0 +1,82 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Component;
+import study.queryDSL.repository.event.MemberTeamChangeHandler;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.event.TeamSnapshot;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * 팀 이름 -> 팀 id 캐시
+ * teamName 조건을 team.name 조인 조건 대신 member.team_id (FK) 조건으로 바꾸기 위해 사용
+ * 같은 이름의 팀이 여럿일수 있어 id 목록을 돌려주고, 없는 이름이면 빈 목록 (이것도 캐시)
+ */
+@Component
+public class TeamIdResolver implements MemberTeamChangeHandler {
+
+    static final int MAX_NAMES = 10_000;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final Map<String, List<Long>> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong(); // 팀 변경 때마다 증가, 조회 중 변경이 있었으면 캐시에 넣지 않는다
+
+    public TeamIdResolver(EntityManager em, JPAQueryFactory queryFactory) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+    }
+
+    public List<Long> resolve(String teamName) {
+        // 이 트랜잭션에 커밋 전 변경이 있으면 캐시는 그 변경을 모른다 -> 캐시를 거치지도, 채우지도 않는다
+        if (MemberTeamEventListener.hasUncommittedChanges(em)) {
+            return load(teamName);
+        }
+        List<Long> cached = cache.get(teamName);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = generation.get();
+        List<Long> teamIds = load(teamName);
+        // 조회 중 auto flush 로 미커밋 팀이 섞였거나, 조회 중 다른 트랜잭션이 팀을 바꿨으면 캐시하지 않는다
+        if (!MemberTeamEventListener.hasPendingWrites() && generation.get() == loadedAt) {
+            if (cache.size() >= MAX_NAMES) {
+                cache.clear();
+            }
+            cache.put(teamName, teamIds);
+        }
+        return teamIds;
+    }
+
+    @Override
+    public void teamChanged(TeamSnapshot before, TeamSnapshot after) {
+        generation.incrementAndGet();
+        if (before != null && before.getName() != null) {
+            cache.remove(before.getName());
+        }
+        if (after != null && after.getName() != null) {
+            cache.remove(after.getName()); // 없는 이름으로 캐시된 것도 지운다
+        }
+    }
+
+    @Override
+    public void bulkChanged() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private List<Long> load(String teamName) {
+        return List.copyOf(queryFactory
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(teamName))
+                .fetch());
+    }
+}
@@ -0,0 +1,66 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * 회원 목록의 팀 프록시와 그 팀의 members 컬렉션을 100개 씩 in (...) 쿼리 하나로 미리 초기화
+ * Team 의 @BatchSize 는 처음 접근할때 같은 일을 하지만, 여기서는 영속성 컨텍스트가 아니라 넘겨받은 회원 목록을 기준으로
+ * 이미 초기화된 팀 / 컬렉션은 다시 읽지 않는다
+ */
+@Component
+public class TeamPreloader {
+
+    static final int BATCH_SIZE = 100; // Team @BatchSize 와 같은 크기
+
+    private final JPAQueryFactory queryFactory;
+    private final PersistenceUnitUtil persistenceUnitUtil;
+
+    public TeamPreloader(EntityManager em) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+    }
+
+    public void preload(List<Member> members) {
+        Set<Long> teamIds = new LinkedHashSet<>();
+        List<Team> proxies = new ArrayList<>();
+        for (Member m : members) {
+            Team memberTeam = m.getTeam();
+            if (memberTeam == null) {
+                continue;
+            }
+            if (!Hibernate.isInitialized(memberTeam)) {
+                teamIds.add((Long) persistenceUnitUtil.getIdentifier(memberTeam)); // 프록시를 초기화하지 않고 id 만
+                proxies.add(memberTeam);
+            } else if (!Hibernate.isInitialized(memberTeam.getMembers())) {
+                teamIds.add(memberTeam.getId());
+            }
+        }
+        if (teamIds.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(teamIds);
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            // 팀을 읽으며 프록시에 실체를 연결하고, 페치 조인으로 이미 영속 상태인 팀의 members 컬렉션도 채운다
+            queryFactory
+                    .selectFrom(team).distinct()
+                    .leftJoin(team.members).fetchJoin()
+                    .where(team.id.in(ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()))))
+                    .fetch();
+        }
+        proxies.forEach(Hibernate::initialize); // 영속성 컨텍스트에서 찾으므로 쿼리는 나가지 않는다
+    }
+}
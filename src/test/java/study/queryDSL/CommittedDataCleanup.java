@@ -0,0 +1,32 @@
+package study.queryDSL;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+/**
+ * 롤백 대신 직접 커밋하는 테스트의 정리, 테스트마다 (@AfterEach 이후) 회원 / 팀을 벌크 delete 로 지운다
+ * 벌크 delete 는 엔티티 이벤트가 없으므로 커밋 후 bulkChanged 로 인메모리 구조들 (카운트 인덱스, 사본, 캐시 ..) 을 비운다
+ */
+public class CommittedDataCleanup implements AfterEachCallback {
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        ApplicationContext applicationContext = SpringExtension.getApplicationContext(context);
+        JPAQueryFactory queryFactory = applicationContext.getBean(JPAQueryFactory.class);
+        MemberTeamEventListener eventListener = applicationContext.getBean(MemberTeamEventListener.class);
+        new TransactionTemplate(applicationContext.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+            eventListener.bulkChanged();
+        });
+    }
+}
@@ -350,7 +350,7 @@ public class QuerydslBasicTest {
                 .fetch();
 
         assertThat(result).extracting("age").containsExactly(40);
-        assertThat(result2).extracting("age").containsExactly(30,40);
+        assertThat(result2).extracting("age").containsExactlyInAnyOrder(30,40); // order by 가 없으면 순서는 인덱스에 따라 다르다
     }
 
     @Test
@@ -0,0 +1,127 @@
+package study.queryDSL.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamColumns;
+import study.queryDSL.dto.MemberTeamColumnsPage;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static study.queryDSL.entity.QTeam.team;
+
+@Slf4j
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+@AutoConfigureMockMvc
+class MemberColumnsTest {
+
+    static final int MEMBERS = 1000;
+    static final int TEAMS = 10;
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < TEAMS; i++) {
+                Team team = new Team("team" + i);
+                em.persist(team);
+                teams.add(team);
+            }
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 80, i % 50 == 0 ? null : teams.get(i % TEAMS)));
+            }
+        });
+    }
+
+    @Test
+    public void sameRowsAsDtoList() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+
+        MemberTeamColumns columns = memberRepository.searchColumns(condition);
+        assertThat(columns.toDtos()).containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+        assertThat(columns.getTeamIds()).hasSize(1); // 팀 이름은 사전에 한번만
+
+        MemberTeamColumns all = memberRepository.searchColumns(new MemberSearchCondition());
+        assertThat(all.getSize()).isEqualTo(MEMBERS);
+        assertThat(all.getTeamNames()).hasSize(TEAMS);
+        assertThat(all.toDtos()).filteredOn(dto -> dto.getTeamId() == null).hasSize(MEMBERS / 50); // 팀 없음은 -1
+
+        MemberTeamColumnsPage page = memberRepository.searchColumnsPage(new MemberSearchCondition(), PageRequest.of(2, 100));
+        assertThat(page.getContent().getSize()).isEqualTo(100);
+        assertThat(page.getTotalElements()).isEqualTo(MEMBERS);
+        assertThat(page.getTotalPages()).isEqualTo(10);
+    }
+
+    @Test
+    public void negotiatedByAccept() throws Exception {
+        String columns = mockMvc.perform(get("/v1/members").param("teamName", "team1")
+                        .accept(MemberTeamColumns.MEDIA_TYPE))
+                .andExpect(content().contentTypeCompatibleWith(MemberTeamColumns.MEDIA_TYPE))
+                .andExpect(jsonPath("$.teamNames[0]").value("team1"))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode node = objectMapper.readTree(columns);
+        assertThat(node.get("size").asInt()).isEqualTo(node.get("memberIds").size());
+
+        // 기본은 지금까지처럼 dto 목록
+        mockMvc.perform(get("/v1/members").param("teamName", "team1"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].teamName").value("team1"));
+        mockMvc.perform(get("/v1/members").param("teamName", "team1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].teamName").value("team1"));
+
+        mockMvc.perform(get("/v2/members").param("page", "1").param("size", "300").accept(MemberTeamColumns.MEDIA_TYPE))
+                .andExpect(jsonPath("$.content.size").value(300))
+                .andExpect(jsonPath("$.totalElements").value(MEMBERS));
+    }
+
+    @Test
+    public void smallerPayload() throws Exception {
+        List<MemberTeamDto> rows = memberRepository.search(new MemberSearchCondition());
+        int dtoBytes = objectMapper.writeValueAsBytes(rows).length;
+        int columnBytes = objectMapper.writeValueAsBytes(MemberTeamColumns.of(rows)).length;
+        log.info("{} rows json: dto list {} bytes, columns {} bytes ({}%)", rows.size(), dtoBytes, columnBytes,
+                columnBytes * 100 / dtoBytes);
+
+        assertThat(columnBytes).isLessThan(dtoBytes / 2); // 행마다 반복되는 키 이름과 팀 이름이 빠진다
+    }
+}
@@ -0,0 +1,52 @@
+package study.queryDSL.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import study.queryDSL.dto.MemberKeysetOrder;
+import study.queryDSL.repository.support.KeysetCursor;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void keysetBadRequest() throws Exception {
+        mockMvc.perform(get("/v4/members").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor")); // 받은 토큰은 돌려주지 않는다
+
+        String ageCursor = new KeysetCursor(MemberKeysetOrder.AGE_ID, 10, 1).encode();
+        mockMvc.perform(get("/v4/members").param("cursor", ageCursor).param("order", "ID"))
+                .andExpect(status().isBadRequest());
+
+        String overflowAge = new KeysetCursor(MemberKeysetOrder.AGE_ID, Integer.MAX_VALUE + 1L, 1).encode(); // int 로 자르면 다른 나이
+        mockMvc.perform(get("/v4/members").param("cursor", overflowAge).param("order", "AGE_ID"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor"));
+
+        mockMvc.perform(get("/v4/members").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void unknownEngineBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/members").param("engine", "memory"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/v1/members").param("engine", "JPA"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/v1/members").param("engine", "memroy")) // 오타를 조용히 jpa 로 돌리지 않는다
+                .andExpect(status().isBadRequest());
+    }
+}
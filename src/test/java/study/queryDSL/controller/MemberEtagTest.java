@@ -0,0 +1,117 @@
+package study.queryDSL.controller;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.metrics.SqlStatementCounter;
+import study.queryDSL.repository.support.MemberDataVersion;
+import study.queryDSL.repository.support.MemberSearchCache;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.queryDSL.entity.QMember.member;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+@AutoConfigureMockMvc
+class MemberEtagTest {
+    // 데이터 버전은 커밋된 변경으로만 올라가므로 직접 커밋하고 정리
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberDataVersion dataVersion;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+        });
+    }
+
+    @Test
+    public void notModifiedWithoutSql() throws Exception {
+        String etag = mockMvc.perform(get("/v2/members").param("teamName", "teamA"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("W/\"");
+
+        long before = SqlStatementCounter.current();
+        mockMvc.perform(get("/v2/members").param("teamName", "teamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        assertThat(SqlStatementCounter.current() - before).isZero();
+
+        // 조건, 페이지, 카운트 방식이 다르면 다른 ETag
+        mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("page", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/v3/members").param("teamName", "teamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void committedChangeChangesEtag() throws Exception {
+        String etag = mockMvc.perform(get("/v3/members").param("count", "none"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        tx.executeWithoutResult(status -> queryFactory.selectFrom(member)
+                .where(member.username.eq("member1")).fetchOne().setAge(11));
+
+        String changed = mockMvc.perform(get("/v3/members").param("count", "none").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"age\":11")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotEqualTo(etag);
+
+        long version = dataVersion.current();
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("member3", 30));
+            em.flush();
+            status.setRollbackOnly(); // 롤백된 변경은 버전을 올리지 않는다
+        });
+        assertThat(dataVersion.current()).isEqualTo(version);
+    }
+
+    @Test
+    public void noEtagWhileSettling() {
+        MemberDataVersion settling = new MemberDataVersion(Duration.ofMinutes(1));
+        MemberSearchCache.Key key = MemberSearchCache.Key.of("v2", new MemberSearchCondition(), PageRequest.of(0, 20));
+        settling.bulkChanged();
+
+        assertThat(settling.etag(key)).isNull(); // 복제가 끝났을지 모르는 동안은 조건부 요청을 받지 않는다
+        assertThat(dataVersion.etag(key)).isEqualTo(dataVersion.etag(key));
+    }
+}
@@ -0,0 +1,183 @@
+package study.queryDSL.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.entity.Member;
+import study.queryDSL.repository.MemberAsyncRepository;
+import study.queryDSL.repository.MemberJpaRepository;
+import study.queryDSL.repository.MemberRepository;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.support.MemberCountIndex;
+import study.queryDSL.repository.support.MemberReadModel;
+import study.queryDSL.repository.support.TeamAggregateStore;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// primary, replica 를 서로 다른 인메모리 H2 로 두고 replicate() 를 부를때만 복제된 것처럼 primary 를 replica 로 복사
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "member.datasource.replica.jdbc-url=" + ReplicaRoutingTest.REPLICA_URL,
+        "member.datasource.replica.username=sa",
+        "member.search-cache.enabled=false" // raw JDBC 로 지우고 복제 지연을 보는 테스트라 결과 캐시는 끈다
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberAsyncRepository memberAsyncRepository;
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberTeamEventListener eventListener;
+    @Autowired
+    MemberCountIndex countIndex;
+    @Autowired
+    MemberReadModel readModel;
+    @Autowired
+    TeamAggregateStore teamAggregateStore;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primaryDataSource;
+
+    @BeforeEach
+    public void before() throws SQLException {
+        new JdbcTemplate(primaryDataSource).execute("delete from member");
+        replicate();
+    }
+
+    @AfterEach
+    public void after() {
+        ReadYourWrites.end();
+    }
+
+    @Test
+    public void readOnlyCallsGoToReplica() throws SQLException {
+        memberRepository.save(new Member("member1", 10));
+
+        assertThat(count(primaryDataSource)).isEqualTo(1); // 쓰기는 primary
+        assertThat(memberRepository.search(new MemberSearchCondition())).isEmpty(); // 아직 복제 전
+        assertThat(memberJpaRepository.findAll_Querydsl()).isEmpty();
+
+        replicate();
+        assertThat(memberRepository.search(new MemberSearchCondition())).hasSize(1);
+        assertThat(memberJpaRepository.findAll_Querydsl()).hasSize(1);
+    }
+
+    @Test
+    public void readsAfterWriteStickToPrimaryWithinRequest() throws Exception {
+        ReadYourWrites.begin();
+        assertThat(ReadYourWrites.isSticky()).isFalse();
+        memberRepository.findByUsername("member1"); // 읽기만 해서는 붙지 않는다
+        assertThat(ReadYourWrites.isSticky()).isFalse();
+
+        memberRepository.save(new Member("member1", 10));
+        assertThat(ReadYourWrites.isSticky()).isTrue();
+        assertThat(memberRepository.search(new MemberSearchCondition())).hasSize(1);
+        assertThat(memberAsyncRepository.search(new MemberSearchCondition()).get()).hasSize(1); // 다른 스레드도 같은 범위
+
+        ReadYourWrites.end();
+        assertThat(memberRepository.search(new MemberSearchCondition())).isEmpty(); // 범위 밖이면 다시 replica
+    }
+
+    @Test
+    public void stickinessEndsWithRequest() throws Exception {
+        mockMvc.perform(post("/v1/members/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"username\":\"member1\",\"age\":10}]"))
+                .andExpect(status().isOk());
+        assertThat(count(primaryDataSource)).isEqualTo(1);
+
+        // 다음 요청은 새 범위, open-in-view 로 열린 EntityManager 도 읽기 전용 트랜잭션마다 replica 커넥션을 얻는다
+        mockMvc.perform(get("/v1/members"))
+                .andExpect(content().json("[]"));
+
+        replicate();
+        mockMvc.perform(get("/v1/members"))
+                .andExpect(content().json("[{\"username\":\"member1\",\"age\":10}]"));
+    }
+
+    @Test
+    public void snapshotLoadersReadPrimaryWhileReplicaLags() {
+        memberRepository.save(new Member("member1", 10));
+        eventListener.bulkChanged(); // 인메모리 구조들을 비워 다음 조회때 다시 적재하게
+        assertThat(memberRepository.search(new MemberSearchCondition())).isEmpty(); // replica 는 아직 복제 전
+
+        // replica 에서 적재하면 0건 스냅샷에 이후 커밋 이벤트만 더해져 계속 1건 모자란다
+        assertThat(countIndex.count(new MemberSearchCondition())).hasValue(1);
+        assertThat(readModel.search(new MemberSearchCondition(), null).orElseThrow())
+                .extracting("username").containsExactly("member1");
+        assertThat(teamAggregateStore.all().getCount()).isEqualTo(1);
+        assertThat(ReadYourWrites.isSticky()).isFalse();
+    }
+
+    @Test
+    public void primaryReadTransactionIsReadOnlyOnPrimary() {
+        PrimaryReadTransactionTemplate transaction = new PrimaryReadTransactionTemplate(transactionManager);
+        ReplicaRoutingDataSource.Route route = transaction.execute(status -> ReplicaRoutingDataSource.currentRoute());
+        boolean readOnly = transaction.execute(status -> TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+
+        assertThat(route).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        assertThat(readOnly).isTrue();
+        assertThat(ReplicaRoutingDataSource.currentRoute()).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+    }
+
+    @Test
+    public void routesByTransactionReadOnlyFlag() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        ReplicaRoutingDataSource.Route readOnly = transaction.execute(status -> ReplicaRoutingDataSource.currentRoute());
+        transaction.setReadOnly(false);
+        ReplicaRoutingDataSource.Route readWrite = transaction.execute(status -> ReplicaRoutingDataSource.currentRoute());
+
+        assertThat(readOnly).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+        assertThat(readWrite).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        assertThat(ReplicaRoutingDataSource.currentRoute()).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY); // 트랜잭션 밖
+    }
+
+    private static long count(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from member", Long.class);
+    }
+
+    // DB 복제 대신 primary 의 스키마와 데이터를 스크립트로 떠서 replica 에 다시 만든다
+    private void replicate() throws SQLException {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("script", String.class);
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = replica.createStatement()) {
+            statement.execute("drop all objects");
+            for (String sql : script) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package study.queryDSL.entity;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.repository.MemberBulkRepository;
+import study.queryDSL.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.queryDSL.entity.QMember.member;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+class SecondLevelCacheTest {
+    // 2차 캐시는 트랜잭션(영속성 컨텍스트) 을 넘어서 공유되므로 트랜잭션을 나눠서 확인
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+    Long memberId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        memberId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            return member1.getId();
+        });
+        emf.getCache().evictAll();
+    }
+
+    @Test
+    public void findByIdAndTeamFromCache() {
+        readMemberAndTeam(); // 캐시 적재
+        statistics.clear();
+
+        String teamName = readMemberAndTeam();
+
+        assertThat(teamName).isEqualTo("teamA");
+        assertThat(statistics.getPrepareStatementCount()).isZero(); // 회원, 팀 모두 DB 왕복 없음
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void bulkUpdateEvictsRegion() {
+        readMemberAndTeam();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        memberBulkRepository.bulkUpdate(condition, update -> update.set(member.age, 99));
+
+        Integer age = tx.execute(status -> memberJpaRepository.findById(memberId).get().getAge());
+        assertThat(age).isEqualTo(99);
+    }
+
+    private String readMemberAndTeam() {
+        return tx.execute(status -> memberJpaRepository.findById(memberId).get().getTeam().getName());
+    }
+}
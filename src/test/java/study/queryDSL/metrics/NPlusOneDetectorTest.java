@@ -0,0 +1,97 @@
+package study.queryDSL.metrics;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class NPlusOneDetectorTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    NPlusOneDetector detector;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void throwsWithPathAndCallSite() {
+        try (NPlusOneScope scope = detector.open("test", 1, 0, NPlusOneDetector.Action.THROW)) {
+            // 회원마다 조회하고 팀에 접근 - 초기화를 기다리는 프록시가 하나 뿐이라 @BatchSize 로도 묶이지 않는다
+            assertThatThrownBy(() -> List.of("member1", "member3")
+                    .forEach(username -> memberJpaRepository.findByUsername(username).get(0).getTeam().getName()))
+                    .isInstanceOf(NPlusOneException.class)
+                    .hasMessageContaining("Member.team lazily loaded 2 times")
+                    .hasMessageContaining("NPlusOneDetectorTest.");
+            assertThat(scope.getViolations()).hasSize(1);
+        }
+    }
+
+    @Test
+    public void countsCollectionInitialization() {
+        List<Team> teams = queryFactory.selectFrom(team).fetch();
+
+        try (NPlusOneScope scope = detector.open("test", 10, 0, NPlusOneDetector.Action.LOG)) {
+            teams.forEach(t -> t.getMembers().size());
+
+            assertThat(scope.getLazyLoadCount("Team.members")).isEqualTo(1); // 첫 컬렉션 초기화에 @BatchSize 로 나머지도 같이
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+            assertThat(scope.getViolations()).isEmpty();
+        }
+    }
+
+    @Test
+    public void opensTransactionScopeWithoutExplicitScope() {
+        assertThat(detector.currentScope()).isNull();
+
+        memberJpaRepository.findByUsername("member1").get(0).getTeam().getName();
+
+        assertThat(detector.currentScope()).isNotNull();
+        assertThat(detector.currentScope().getLazyLoadCount("Member.team")).isEqualTo(1);
+    }
+
+    @Test
+    @NoNPlusOne(statements = 1)
+    public void fetchJoinHasNoLazyLoads(NPlusOneScope scope) {
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin()
+                .fetch();
+        members.forEach(m -> m.getTeam().getName());
+
+        assertThat(scope.getLazyLoads()).isEmpty();
+        assertThat(scope.getStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,53 @@
+package study.queryDSL.metrics;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link NoNPlusOne} 이 붙은 테스트마다 스프링 컨텍스트의 {@link NPlusOneDetector} 로 감지 범위를 연다
+ * 테스트 메서드 본문만 센다 (@BeforeEach 이후) - 데이터 준비 중의 지연 로딩은 세지 않는다
+ */
+public class NPlusOneExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback, ParameterResolver {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(NPlusOneExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        NoNPlusOne settings = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), NoNPlusOne.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), NoNPlusOne.class))
+                .orElseThrow();
+        NPlusOneDetector detector = SpringExtension.getApplicationContext(context).getBean(NPlusOneDetector.class);
+        NPlusOneScope scope = detector.open(context.getDisplayName(), settings.lazyLoads(), settings.statements(),
+                NPlusOneDetector.Action.THROW);
+        context.getStore(NAMESPACE).put(NPlusOneScope.class, scope);
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        NPlusOneScope scope = context.getStore(NAMESPACE).remove(NPlusOneScope.class, NPlusOneScope.class);
+        if (scope == null) {
+            return;
+        }
+        scope.close();
+        if (context.getExecutionException().isEmpty()) {
+            assertThat(scope.getViolations()).as("N+1").isEmpty();
+        }
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == NPlusOneScope.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return extensionContext.getStore(NAMESPACE).get(NPlusOneScope.class, NPlusOneScope.class);
+    }
+}
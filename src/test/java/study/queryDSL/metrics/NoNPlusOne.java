@@ -0,0 +1,25 @@
+package study.queryDSL.metrics;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메서드 (클래스에 붙이면 모든 메서드) 에서 N+1 이 일어나면 실패시킨다
+ * 같은 연관관계가 lazyLoads 번을 넘게 지연 로딩되면 그 자리에서 NPlusOneException 이 나고, 잡아서 삼키더라도 테스트가 끝날때 실패
+ * 테스트 메서드에 NPlusOneScope 파라미터를 선언하면 지연 로딩 / SQL 횟수를 직접 확인할 수 있다
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(NPlusOneExtension.class)
+public @interface NoNPlusOne {
+
+    // 연관관계 경로마다 허용하는 지연 로딩 횟수
+    int lazyLoads() default 1;
+
+    // 테스트 하나에서 허용하는 SQL 수, 0 이면 보지 않는다
+    int statements() default 0;
+}
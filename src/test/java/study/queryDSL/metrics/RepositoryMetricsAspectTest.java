@@ -0,0 +1,129 @@
+package study.queryDSL.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.MemberJpaRepository;
+import study.queryDSL.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMetrics // 테스트에서는 기본적으로 프로메테우스 레지스트리가 꺼져 있다
+@AutoConfigureMockMvc
+@Transactional
+class RepositoryMetricsAspectTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MeterRegistry registry;
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void recordsLatencyRowsAndStatements() {
+        memberJpaRepository.findByUsername_Querydsl("member1");
+
+        assertThat(timer("MemberJpaRepository", "findByUsername_Querydsl").count()).isEqualTo(1);
+        DistributionSummary rows = summary("repository.rows", "MemberJpaRepository", "findByUsername_Querydsl");
+        assertThat(rows.count()).isEqualTo(1);
+        assertThat(rows.totalAmount()).isEqualTo(1);
+        assertThat(summary("repository.statements", "MemberJpaRepository", "findByUsername_Querydsl").totalAmount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void recordsOnlyOutermostRepositoryCall() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+
+        assertThat(timer("MemberRepository", "searchPageComplex").count()).isEqualTo(1);
+        assertThat(summary("repository.rows", "MemberRepository", "searchPageComplex").totalAmount()).isEqualTo(3);
+        // MemberRepositoryImpl, MemberSearchTemplates 는 안쪽 호출이라 따로 기록되지 않는다
+        assertThat(registry.find("repository.latency").tag("repository", "MemberRepositoryImpl").timer()).isNull();
+        assertThat(registry.find("repository.latency").tag("repository", "MemberSearchTemplates").timer()).isNull();
+    }
+
+    @Test
+    public void recordsStreamedRowsAndConsumption() {
+        long count = memberJpaRepository.streamSearch(new MemberSearchCondition(), row -> sleep(10));
+
+        assertThat(count).isEqualTo(5);
+        assertThat(summary("repository.rows", "MemberJpaRepository", "streamSearch").totalAmount()).isEqualTo(5);
+        // 지연시간은 consumer 가 행을 처리하는 시간까지 포함
+        assertThat(timer("MemberJpaRepository", "streamSearch").totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    public void exposesPrometheusScrape() throws Exception {
+        memberJpaRepository.search(new MemberSearchCondition());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("repository_latency_seconds_bucket{")))
+                .andExpect(content().string(containsString("method=\"search\"")))
+                .andExpect(content().string(containsString("repository_rows_count{")))
+                .andExpect(content().string(containsString("repository_statements_count{")))
+                .andExpect(content().string(containsString("hibernate_query_plan_cache_hit_ratio")))
+                .andExpect(content().string(containsString("hibernate_entities_total{operation=\"load\"")))
+                .andExpect(content().string(containsString("hibernate_entities_total{operation=\"fetch\"")));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Timer timer(String repository, String method) {
+        return registry.get("repository.latency")
+                .tag("repository", repository)
+                .tag("method", method)
+                .timer();
+    }
+
+    private DistributionSummary summary(String name, String repository, String method) {
+        return registry.get(name)
+                .tag("repository", repository)
+                .tag("method", method)
+                .summary();
+    }
+}
@@ -0,0 +1,107 @@
+package study.queryDSL.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.support.AsyncQueryExecutor;
+import study.queryDSL.repository.support.BulkheadFullException;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+class MemberAsyncRepositoryTest {
+    // 비동기 조회는 다른 스레드의 트랜잭션이라 커밋된 데이터만 보므로 롤백 대신 직접 커밋하고 정리
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberAsyncRepository memberAsyncRepository;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 30; i++) {
+                em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @Test
+    public void sameResultAsBlockingSearch() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(5);
+        PageRequest pageRequest = PageRequest.of(1, 5);
+
+        Page<MemberTeamDto> async = memberAsyncRepository.searchPageComplex(condition, pageRequest).join();
+        Page<MemberTeamDto> blocking = tx.execute(status -> memberRepository.searchPageComplex(condition, pageRequest));
+
+        assertThat(async.getTotalElements()).isEqualTo(blocking.getTotalElements()).isEqualTo(12);
+        assertThat(async.getContent()).usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(blocking.getContent());
+        assertThat(memberAsyncRepository.search(condition).join()).hasSize(12);
+    }
+
+    @Test
+    public void bulkheadRejectsWhenFull() throws InterruptedException {
+        AsyncQueryExecutor executor = new AsyncQueryExecutor(transactionManager, 4, 10, 1, 100);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> first = executor.submit(() -> {
+                running.countDown();
+                await(release); // 자리를 잡고 오래 걸리는 조회
+                return "first";
+            });
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture<String> second = executor.submit(() -> "second");
+            assertThatThrownBy(second::join).hasCauseInstanceOf(BulkheadFullException.class);
+
+            release.countDown();
+            assertThat(first.join()).isEqualTo("first");
+            assertThat(executor.submit(() -> "third").join()).isEqualTo("third");
+            assertThat(executor.availablePermits()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package study.queryDSL.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.BulkResult;
+import study.queryDSL.dto.MemberCreateDto;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.event.MemberTeamEventListener;
+import study.queryDSL.repository.support.MemberCountIndex;
+import study.queryDSL.repository.support.MemberDataVersion;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+class MemberBulkRepositoryTest {
+    // chunk 마다 커밋하므로 롤백 대신 직접 정리
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+    @Autowired
+    MemberCountIndex countIndex;
+    @Autowired
+    MemberDataVersion dataVersion;
+
+    TransactionTemplate tx;
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        teamId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            return teamA.getId();
+        });
+    }
+
+    @Test
+    public void bulkInsert() {
+        List<MemberCreateDto> members = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            members.add(new MemberCreateDto("member" + i, i % 100, i % 2 == 0 ? teamId : null));
+        }
+
+        BulkResult result = memberBulkRepository.bulkInsert(members);
+
+        assertThat(result.getRows()).isEqualTo(2500);
+        assertThat(result.getChunks()).isEqualTo(3); // chunk-size 1000
+        assertThat(result.getRowsPerSecond()).isPositive();
+        assertThat(queryFactory.selectFrom(member).fetchCount()).isEqualTo(2500);
+        assertThat(queryFactory.selectFrom(member).where(member.team.id.eq(teamId)).fetchCount()).isEqualTo(1250);
+    }
+
+    @Test
+    public void bulkUpdateInParallelChunks() {
+        insertMembers(1000);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeLoe(49);
+
+        List<BulkResult> progress = Collections.synchronizedList(new ArrayList<>());
+        BulkResult result = memberBulkRepository.bulkUpdate(condition,
+                update -> update.set(member.age, member.age.add(100)), 100, 4, progress::add);
+
+        assertThat(result.getRows()).isEqualTo(250); // teamA 500명 중 나이 0 ~ 49
+        assertThat(result.getChunks()).isEqualTo(3).isEqualTo(progress.size());
+        assertThat(progress).extracting("rows").contains(250L);
+        assertThat(queryFactory.selectFrom(member).where(member.age.goe(100)).fetchCount()).isEqualTo(250);
+    }
+
+    @Test
+    public void bulkDeleteInChunks() {
+        insertMembers(1000);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(90);
+
+        BulkResult result = memberBulkRepository.bulkDelete(condition, 30, 1, progress -> { });
+
+        assertThat(result.getRows()).isEqualTo(100);
+        assertThat(result.getChunks()).isEqualTo(4); // 흩어진 100건을 30 씩, 빈 구간 없이
+        assertThat(queryFactory.selectFrom(member).fetchCount()).isEqualTo(900);
+    }
+
+    @Test
+    public void bulkUpdateWithoutMatches() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("nobody");
+
+        BulkResult result = memberBulkRepository.bulkUpdate(condition, update -> update.set(member.age, 0));
+
+        assertThat(result.getRows()).isZero();
+        assertThat(result.getChunks()).isZero();
+    }
+
+    @Test
+    public void notifiesOnceAfterAllChunks() {
+        insertMembers(1000);
+        long version = MemberTeamEventListener.writeVersion();
+
+        BulkResult result = memberBulkRepository.bulkUpdate(new MemberSearchCondition(),
+                update -> update.set(member.age, member.age.add(1)), 100, 4, progress -> { });
+
+        assertThat(result.getChunks()).isEqualTo(10);
+        assertThat(MemberTeamEventListener.writeVersion()).isEqualTo(version + 1); // chunk 10개가 쓰기 하나로
+    }
+
+    @Test
+    public void loadedStructuresStepAsideDuringBulk() {
+        insertMembers(100);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(90);
+        assertThat(countIndex.count(condition)).hasValue(10); // 적재
+        String etag = dataVersion.etag("members");
+        assertThat(etag).isNotNull();
+
+        List<OptionalLong> counts = new ArrayList<>();
+        List<String> etags = new ArrayList<>();
+        memberBulkRepository.bulkUpdate(new MemberSearchCondition(), update -> update.set(member.age, member.age.add(10)),
+                50, 1, progress -> { // 첫 chunk 만 커밋된 사이
+                    if (progress.getChunks() == 1) {
+                        counts.add(countIndex.count(condition));
+                        etags.add(dataVersion.etag("members"));
+                    }
+                });
+
+        assertThat(counts).containsExactly(OptionalLong.empty()); // 벌크 전 건수 대신 SQL 로
+        assertThat(etags).hasSize(1).doesNotContain(etag); // 벌크 전 ETag 로 304 를 주지 않는다
+        assertThat(countIndex.count(condition)).hasValue(20); // 닫힌 뒤에는 다시 적재
+        assertThat(dataVersion.etag("members")).isNotNull().isNotEqualTo(etag);
+    }
+
+    @Test
+    public void clearsCallerPersistenceContext() {
+        insertMembers(10);
+        tx.executeWithoutResult(status -> {
+            Member member1 = queryFactory.selectFrom(member).where(member.username.eq("member1")).fetchOne();
+            memberBulkRepository.bulkUpdate(new MemberSearchCondition(), update -> update.set(member.age, 99));
+            assertThat(em.contains(member1)).isFalse();
+            assertThat(queryFactory.selectFrom(member).where(member.username.eq("member1")).fetchOne().getAge())
+                    .isEqualTo(99);
+        });
+    }
+
+    @Test
+    public void failedChunkStillNotifies() {
+        insertMembers(100);
+        long version = MemberTeamEventListener.writeVersion();
+
+        assertThatThrownBy(() -> memberBulkRepository.bulkUpdate(new MemberSearchCondition(), update -> {
+            throw new IllegalStateException("boom");
+        }, 10, 4, progress -> { })).hasMessageContaining("boom");
+
+        assertThat(MemberTeamEventListener.writeVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    public void chunkSizeMustBePositive() {
+        assertThatThrownBy(() -> new MemberBulkRepository(em, queryFactory, null, transactionManager, 0, 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MemberBulkRepository(em, queryFactory, null, transactionManager, -1, 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void insertMembers(int count) {
+        List<MemberCreateDto> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            members.add(new MemberCreateDto("member" + i, i % 100, i % 2 == 0 ? teamId : null));
+        }
+        memberBulkRepository.bulkInsert(members);
+    }
+}
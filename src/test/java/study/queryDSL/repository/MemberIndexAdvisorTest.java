@@ -0,0 +1,66 @@
+package study.queryDSL.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.queryDSL.dto.IndexAdviceDto;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberIndexAdvisorTest {
+
+    // 조건이 하나도 없고 정렬도 없는 검색만 전체 스캔이 맞다 - 새 검색 모양이 스캔으로 떨어지면 여기서 실패
+    static final Set<String> ALLOWED_SCANS = Set.of("---- UNSORTED");
+
+    @Autowired
+    MemberIndexAdvisor advisor;
+
+    @Test
+    public void everySearchShapeUsesAnIndex() {
+        List<IndexAdviceDto> advice = advisor.advise();
+        assertThat(advice).hasSize(16 * MemberIndexAdvisor.SORTS.size());
+
+        List<String> scans = advisor.fullScans().stream()
+                .map(a -> a.getShape() + " " + a.getSort() + " -> " + a.getAccess())
+                .collect(Collectors.toList());
+        assertThat(scans)
+                .as("검색 모양이 전체 스캔으로 바뀜, @Table(indexes) 확인")
+                .allMatch(s -> ALLOWED_SCANS.stream().anyMatch(allowed -> s.startsWith(allowed + " ->")));
+    }
+
+    @Test
+    public void rangeAndSortUseDeclaredIndexes() {
+        List<IndexAdviceDto> advice = advisor.advise();
+
+        assertThat(find(advice, "--GL", "UNSORTED").getAccess())
+                .startsWith("PUBLIC.IDX_MEMBER_AGE_USERNAME: AGE >= ?1 AND AGE <= ?2");
+        assertThat(find(advice, "-IG-", "UNSORTED").getAccess())
+                .startsWith("PUBLIC.IDX_MEMBER_TEAM_AGE: TEAM_ID = ?1 AND AGE >= ?2");
+        IndexAdviceDto sorted = find(advice, "----", "age: DESC,username: ASC");
+        assertThat(sorted.getAccess()).isEqualTo("PUBLIC.IDX_MEMBER_AGE_USERNAME"); // 조건 없이도 정렬 순서대로 한 페이지만
+        assertThat(sorted.isFullScan()).isFalse();
+    }
+
+    @Test
+    public void detectsScans() {
+        String tableScan = "FROM \"PUBLIC\".\"MEMBER\" \"MEMBER0_\"\n    /* PUBLIC.MEMBER.tableScan */ WHERE \"MEMBER0_\".\"AGE\" >= ?1";
+        String access = MemberIndexAdvisor.memberAccess(tableScan);
+        assertThat(access).isEqualTo("PUBLIC.MEMBER.tableScan");
+        assertThat(MemberIndexAdvisor.isFullScan(access, tableScan)).isTrue();
+
+        String indexScan = "FROM \"PUBLIC\".\"MEMBER\" \"MEMBER0_\"\n    /* PUBLIC.IDX_MEMBER_USERNAME */ ORDER BY 2";
+        assertThat(MemberIndexAdvisor.isFullScan(MemberIndexAdvisor.memberAccess(indexScan), indexScan)).isTrue();
+    }
+
+    private static IndexAdviceDto find(List<IndexAdviceDto> advice, String shape, String sort) {
+        return advice.stream()
+                .filter(a -> a.getShape().equals(shape) && a.getSort().equals(sort))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -11,6 +11,7 @@ import study.queryDSL.entity.Team;
 
 import javax.persistence.EntityManager;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
@@ -123,5 +124,25 @@ class MemberJpaRepositoryTest {
         assertThat(result).extracting("username").containsExactly("member4");
     }
 
+    @Test
+    public void streamSearchTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 1200; i++) { // fetch size 보다 많이
+            em.persist(new Member("member" + i, i % 50, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(40);
+
+        List<MemberTeamDto> streamed = new ArrayList<>();
+        long count = membeJparRepository.streamSearch(condition, streamed::add);
+
+        List<MemberTeamDto> expected = membeJparRepository.search(condition);
+        assertThat(count).isEqualTo(expected.size());
+        assertThat(streamed).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(em.contains(teamA)).isTrue(); // 읽는 도중 영속성 컨텍스트를 비우지 않는다
+    }
+
 
 }
\ No newline at end of file
@@ -5,17 +5,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
+import study.queryDSL.dto.MemberKeysetOrder;
+import study.queryDSL.dto.MemberKeysetPage;
 import study.queryDSL.dto.MemberSearchCondition;
 import study.queryDSL.dto.MemberTeamDto;
 import study.queryDSL.entity.Member;
 import study.queryDSL.entity.QMember;
 import study.queryDSL.entity.Team;
+import study.queryDSL.metrics.SqlStatementCounter;
+import study.queryDSL.repository.support.InvalidCursorException;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -25,6 +33,8 @@ class MemberRepositoryTest {
     private EntityManager em;
     @Autowired
     MemberRepository memberRepository;
+    @Autowired
+    MemberTestRepository memberTestRepository;
 
     @Test
     public void basicTest() {
@@ -94,6 +104,151 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2","member3");
     }
 
+    @Test
+    public void applyPaginationComplex() {
+        // Querydsl4RepositorySupport.applyPagination 의 컨텐츠 / 카운트 쿼리 분리 버전
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age"));
+
+        Page<Member> first = memberTestRepository.applyPaginationComplex(condition, pageRequest);
+        assertThat(first.getContent()).extracting("username").containsExactly("member5", "member4");
+        assertThat(first.getTotalElements()).isEqualTo(4);
+
+        condition.setTeamName("teamB");
+        Page<Member> byTeam = memberTestRepository.applyPaginationComplex(condition, pageRequest);
+        assertThat(byTeam.getContent()).extracting("username").containsExactly("member4", "member3");
+        assertThat(byTeam.getTotalElements()).isEqualTo(2);
+
+        condition.setTeamName("teamC");
+        assertThat(memberTestRepository.applyPaginationComplex(condition, pageRequest)).isEmpty();
+    }
+
+    @Test
+    public void searchSlice() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        long before = SqlStatementCounter.current();
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 2));
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(1); // 카운트 쿼리 없음
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2"); // 정렬이 없으면 id 순서
+        assertThat(first.hasNext()).isTrue();
+
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(2, 2));
+        assertThat(last.getContent()).extracting("username").containsExactly("member5");
+        assertThat(last.hasNext()).isFalse();
+
+        Slice<MemberTeamDto> exact = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+        assertThat(exact.getContent()).hasSize(2);
+        assertThat(exact.hasNext()).isFalse();
+    }
+
+    @Test
+    public void searchSliceSortsWithIdTiebreaker() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        // 나이가 같은 회원끼리는 id 순서
+        em.persist(new Member("member1", 20, teamA));
+        em.persist(new Member("member2", 30, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 30, teamA));
+        em.persist(new Member("member5", 20, teamA));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Sort byAgeDesc = Sort.by(Sort.Direction.DESC, "age");
+
+        List<MemberTeamDto> all = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            all.addAll(memberRepository.searchSlice(condition, PageRequest.of(page, 2, byAgeDesc)).getContent());
+        }
+        assertThat(all).extracting("username")
+                .containsExactly("member2", "member4", "member1", "member3", "member5");
+
+        Slice<Member> members = memberTestRepository.applySlicing(condition, PageRequest.of(1, 2, byAgeDesc));
+        assertThat(members.getContent()).extracting("username").containsExactly("member1", "member3");
+    }
+
+    @Test
+    public void applySlicing() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+
+        long before = SqlStatementCounter.current();
+        Slice<Member> result = memberTestRepository.applySlicing(condition, pageRequest);
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(1);
+        assertThat(result.getContent()).extracting("username").containsExactly("member5", "member4", "member3");
+        assertThat(result.hasNext()).isTrue();
+    }
+
+    @Test
+    public void searchKeyset() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        // 나이가 같은 회원이 있어야 (age, id) 정렬의 동률 처리를 확인 가능
+        em.persist(new Member("member1", 30, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 20, teamB));
+        em.persist(new Member("member5", 30, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        MemberKeysetPage first = memberRepository.searchKeyset(condition, MemberKeysetOrder.AGE_ID, null, 2);
+        assertThat(first.getContent()).extracting("username").containsExactly("member2", "member4");
+        assertThat(first.isHasNext()).isTrue();
+
+        MemberKeysetPage second = memberRepository.searchKeyset(condition, MemberKeysetOrder.AGE_ID, first.getNextCursor(), 2);
+        assertThat(second.getContent()).extracting("username").containsExactly("member1", "member3");
+
+        MemberKeysetPage third = memberRepository.searchKeyset(condition, MemberKeysetOrder.AGE_ID, second.getNextCursor(), 2);
+        assertThat(third.getContent()).extracting("username").containsExactly("member5");
+        assertThat(third.isHasNext()).isFalse();
+        assertThat(third.getNextCursor()).isNull();
+
+        condition.setTeamName("teamB");
+        MemberKeysetPage byId = memberRepository.searchKeyset(condition, MemberKeysetOrder.ID, null, 2);
+        assertThat(byId.getContent()).extracting("username").containsExactly("member3", "member4");
+        MemberKeysetPage byIdNext = memberRepository.searchKeyset(condition, MemberKeysetOrder.ID, byId.getNextCursor(), 2);
+        assertThat(byIdNext.getContent()).extracting("username").containsExactly("member5");
+
+        // 최대 크기로 줄여서 조회, limit(size + 1) 이 넘치지 않는다
+        MemberKeysetPage huge = memberRepository.searchKeyset(condition, MemberKeysetOrder.ID, null, Integer.MAX_VALUE);
+        assertThat(huge.getContent()).extracting("username").containsExactly("member3", "member4", "member5");
+        assertThat(huge.isHasNext()).isFalse();
+
+        assertThatThrownBy(() -> memberRepository.searchKeyset(condition, MemberKeysetOrder.AGE_ID, byId.getNextCursor(), 2))
+                .isInstanceOf(InvalidCursorException.class); // 예외 변환 없이 그대로
+    }
+
     @Test
     public void querydslPredicateExecutorTest() {
         Team teamA = new Team("teamA");
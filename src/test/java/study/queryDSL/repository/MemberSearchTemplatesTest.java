@@ -0,0 +1,111 @@
+package study.queryDSL.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.dto.QMemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.support.QueryTemplateCache;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.util.StringUtils.hasText;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class MemberSearchTemplatesTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+    @Autowired
+    QueryTemplateCache templateCache;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 40));
+    }
+
+    @Test
+    public void allShapesMatchDynamicQuery() {
+        for (int shape = 0; shape < 16; shape++) { // username, teamName, ageGoe, ageLoe 존재 여부 16가지
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "member3" : null);
+            condition.setTeamName((shape & 2) != 0 ? "teamB" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 20 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 35 : null);
+
+            List<MemberTeamDto> expected = dynamicSearch(condition);
+            assertThat(searchTemplates.search(condition)).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(searchTemplates.count(condition)).isEqualTo(expected.size());
+        }
+    }
+
+    @Test
+    public void repeatedShapeHitsCache() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        searchTemplates.search(condition);
+        long hits = templateCache.getHits();
+        long misses = templateCache.getMisses();
+
+        condition.setTeamName("teamB"); // 값만 다르고 모양은 같다
+        List<MemberTeamDto> result = searchTemplates.search(condition);
+
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+        assertThat(templateCache.getHits()).isEqualTo(hits + 1);
+        assertThat(templateCache.getMisses()).isEqualTo(misses);
+    }
+
+    @Test
+    public void applyPaginationWithSort() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age").and(Sort.by("username")));
+
+        Page<Member> result = memberTestRepository.applyPagination(condition, pageRequest);
+
+        assertThat(result.getContent()).extracting("username").containsExactly("member4", "member5");
+        assertThat(result.getTotalElements()).isEqualTo(4);
+    }
+
+    private List<MemberTeamDto> dynamicSearch(MemberSearchCondition condition) {
+        return queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        hasText(condition.getUsername()) ? member.username.eq(condition.getUsername()) : null,
+                        hasText(condition.getTeamName()) ? team.name.eq(condition.getTeamName()) : null,
+                        condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+                        condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null)
+                .fetch();
+    }
+}
@@ -0,0 +1,160 @@
+package study.queryDSL.repository.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.metrics.SqlStatementCounter;
+import study.queryDSL.repository.MemberRepository;
+import study.queryDSL.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+@Transactional
+class CountEstimatorTest {
+
+    static final int MEMBERS = 3000;
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    @Autowired
+    CountEstimator countEstimator;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < MEMBERS; i++) {
+            em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void capped() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(50); // 1500 건
+
+        CountedPage<MemberTeamDto> page = memberRepository.searchPage(condition, PageRequest.of(0, 10),
+                CountStrategy.capped(1000));
+        assertThat(page.getTotalElements()).isEqualTo(1000);
+        assertThat(page.isTotalExact()).isFalse(); // "1000+"
+        assertThat(page.getCountStrategy()).isEqualTo(CountStrategy.Type.CAPPED);
+
+        CountedPage<MemberTeamDto> underCap = memberRepository.searchPage(condition, PageRequest.of(0, 10),
+                CountStrategy.capped(2000));
+        assertThat(underCap.getTotalElements()).isEqualTo(1500);
+        assertThat(underCap.isTotalExact()).isTrue();
+    }
+
+    @Test
+    public void estimated() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(50);
+
+        CountedPage<MemberTeamDto> page = memberRepository.searchPage(condition, PageRequest.of(0, 10),
+                CountStrategy.ESTIMATED);
+        assertThat(page.getCountStrategy()).isEqualTo(CountStrategy.Type.ESTIMATED);
+        assertThat(page.isTotalExact()).isFalse();
+        assertThat((double) page.getTotalElements()).isCloseTo(1500, within(300.0));
+
+        condition.setAgeLoe(50); // 30 건, 표본보다 적으면 정확한 값
+        CountedPage<MemberTeamDto> small = memberRepository.searchPage(condition, PageRequest.of(0, 10),
+                CountStrategy.ESTIMATED);
+        assertThat(small.getTotalElements()).isEqualTo(30);
+        assertThat(small.isTotalExact()).isTrue();
+    }
+
+    @Test
+    public void tableRowsFromStatistics() {
+        assertThat((double) countEstimator.tableRows(Member.class)).isCloseTo(MEMBERS, within(MEMBERS * 0.1));
+    }
+
+    @Test
+    public void noneIssuesOnlyContentQuery() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        long before = SqlStatementCounter.current();
+        CountedPage<MemberTeamDto> page = memberRepository.searchPage(condition, PageRequest.of(2, 10),
+                CountStrategy.NONE);
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(1);
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(31); // 지금까지 본 건수 + 1
+        assertThat(page.isTotalExact()).isFalse();
+    }
+
+    @Test
+    public void exactStaysDefault() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        CountedPage<MemberTeamDto> page = memberRepository.searchPage(condition, PageRequest.of(0, 10),
+                CountStrategy.EXACT);
+        assertThat(page.getTotalElements()).isEqualTo(MEMBERS / 2);
+        assertThat(page.isTotalExact()).isTrue();
+        assertThat(page.getCountStrategy()).isEqualTo(CountStrategy.Type.EXACT);
+    }
+
+    @Test
+    public void unpagedReadsAllRows() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(90); // 300 건
+
+        for (CountStrategy strategy : new CountStrategy[]{CountStrategy.EXACT, CountStrategy.capped(100),
+                CountStrategy.ESTIMATED, CountStrategy.NONE}) {
+            long before = SqlStatementCounter.current();
+            CountedPage<MemberTeamDto> page = memberRepository.searchPage(condition, Pageable.unpaged(), strategy);
+            assertThat(SqlStatementCounter.current() - before).isEqualTo(1); // 카운트 쿼리 없이
+            assertThat(page.getContent()).hasSize(300);
+            assertThat(page.getTotalElements()).isEqualTo(300);
+            assertThat(page.isTotalExact()).isTrue();
+        }
+    }
+
+    @Test
+    public void applyPaginationWithStrategy() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "age"));
+
+        CountedPage<Member> capped = memberTestRepository.applyPagination(condition, pageRequest, CountStrategy.capped(100));
+        assertThat(capped.getTotalElements()).isEqualTo(100);
+        assertThat(capped.isTotalExact()).isFalse();
+        assertThat(capped.getContent()).extracting("age").containsOnly(99);
+
+        CountedPage<Member> none = memberTestRepository.applyPagination(condition, pageRequest, CountStrategy.NONE);
+        assertThat(none.getContent()).hasSize(5);
+        assertThat(none.hasNext()).isTrue();
+        assertThat(none.getCountStrategy()).isEqualTo(CountStrategy.Type.NONE);
+    }
+
+    @Test
+    public void parsesRequestParameter() {
+        assertThat(CountStrategy.valueOf("exact")).isSameAs(CountStrategy.EXACT);
+        assertThat(CountStrategy.valueOf("capped")).isEqualTo(CountStrategy.capped(1000));
+        assertThat(CountStrategy.valueOf("CAPPED:500").getCap()).isEqualTo(500);
+        assertThat(CountStrategy.valueOf("none")).isSameAs(CountStrategy.NONE);
+        assertThatThrownBy(() -> CountStrategy.valueOf("exact:10")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CountStrategy.valueOf("capped:0")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
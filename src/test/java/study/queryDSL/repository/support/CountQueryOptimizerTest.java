@@ -0,0 +1,141 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.QMemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.QMember;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.MemberSearchTemplates;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class CountQueryOptimizerTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    QueryTemplateCache templateCache;
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 40));
+    }
+
+    @Test
+    public void dropsUnreferencedLeftJoinAndOrderBy() {
+        JPAQuery<?> query = queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.goe(20))
+                .orderBy(team.name.desc(), member.id.asc())
+                .offset(1).limit(2);
+
+        String sql = countSql(query);
+        assertThat(sql).startsWith("select count(member0_.member_id)");
+        assertThat(sql).doesNotContain(" join ").doesNotContain("order by").doesNotContain("limit");
+        assertThat(CountQueryOptimizer.fetchCount(query, em)).isEqualTo(4);
+    }
+
+    @Test
+    public void keepsReferencedJoin() {
+        JPAQuery<?> query = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(team.name.eq("teamA"));
+
+        assertThat(countSql(query)).contains("left outer join team");
+        assertThat(CountQueryOptimizer.fetchCount(query, em)).isEqualTo(2);
+    }
+
+    @Test
+    public void dropsFetchJoin() {
+        JPAQuery<?> unreferenced = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin();
+        assertThat(countSql(unreferenced)).doesNotContain(" join ");
+        assertThat(CountQueryOptimizer.fetchCount(unreferenced, em)).isEqualTo(5);
+
+        JPAQuery<?> referenced = queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin() // inner join 은 행을 걸러내므로 유지, fetch 만 제거
+                .where(member.age.lt(40));
+        String sql = countSql(referenced);
+        assertThat(sql).contains("inner join team");
+        assertThat(CountQueryOptimizer.fetchCount(referenced, em)).isEqualTo(3);
+    }
+
+    @Test
+    public void keepsCollectionJoin() {
+        QMember teamMember = new QMember("teamMember");
+        JPAQuery<?> query = queryFactory
+                .selectFrom(team)
+                .leftJoin(team.members, teamMember); // 팀당 회원 수 만큼 행이 늘어난다
+
+        assertThat(countSql(query)).contains("left outer join member");
+        assertThat(CountQueryOptimizer.fetchCount(query, em)).isEqualTo(query.fetch().size());
+    }
+
+    @Test
+    public void templateCountWithoutTeamFilterHasNoJoin() {
+        searchTemplates.count(new MemberSearchCondition()); // 템플릿 생성
+
+        QueryTemplate<?> template = templateCache.get("memberTeamDto:----", () -> {
+            throw new AssertionError("template should be cached");
+        });
+        assertThat(sql(template.getCountJpql())).doesNotContain(" join ");
+        assertThat(searchTemplates.count(new MemberSearchCondition())).isEqualTo(5);
+    }
+
+    private String countSql(JPAQuery<?> query) {
+        QueryMetadata countMetadata = CountQueryOptimizer.optimize(query.getMetadata(), em);
+        assertThat(countMetadata).isNotNull();
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(countMetadata, false, null);
+        return sql(serializer.toString());
+    }
+
+    // 하이버네이트가 JPQL 을 번역한 SQL, 5.4 에서 번역 결과를 얻는 공개된 길은 deprecated 인 쿼리 플랜 캐시뿐
+    @SuppressWarnings("deprecation")
+    private String sql(String jpql) {
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        String[] sqlStrings = sessionFactory.getQueryPlanCache()
+                .getHQLQueryPlan(jpql, false, Collections.emptyMap())
+                .getSqlStrings();
+        return String.join(";", sqlStrings).toLowerCase();
+    }
+}
@@ -0,0 +1,138 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.util.StringUtils.hasText;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+class MemberCountIndexTest {
+    // 인덱스는 커밋된 변경만 반영하므로 @Transactional 롤백 대신 직접 커밋하고 정리
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberCountIndex countIndex;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            em.persist(new Member("member5", 40));
+        });
+    }
+
+    @Test
+    public void countMatchesSql() {
+        assertSameAsSql(condition(null, null, null));
+        assertSameAsSql(condition("teamA", null, null));
+        assertSameAsSql(condition("teamB", 35, null));
+        assertSameAsSql(condition(null, 15, 40));
+        assertSameAsSql(condition("teamC", null, null));
+    }
+
+    @Test
+    public void followsCommittedChanges() {
+        assertSameAsSql(condition("teamB", 35, null)); // 인덱스 적재
+
+        tx.executeWithoutResult(status -> {
+            Member member3 = queryFactory.selectFrom(member).where(member.username.eq("member3")).fetchOne();
+            member3.setAge(50);
+            Member member1 = queryFactory.selectFrom(member).where(member.username.eq("member1")).fetchOne();
+            em.remove(member1);
+            Team teamA = queryFactory.selectFrom(team).where(team.name.eq("teamA")).fetchOne();
+            em.persist(new Member("member6", 60, teamA));
+        });
+
+        assertSameAsSql(condition("teamB", 35, null));
+        assertSameAsSql(condition("teamA", null, null));
+        assertSameAsSql(condition(null, 45, null));
+    }
+
+    @Test
+    public void commitInterleavedWithRebuild() throws Exception {
+        countIndex.bulkChanged(); // 다음 조회때 다시 적재
+        Thread writer;
+        synchronized (countIndex) { // 커밋은 DB 에 보이지만 인덱스로의 이벤트 전달은 여기서 막힌다
+            writer = new Thread(() -> tx.executeWithoutResult(status -> em.persist(new Member("member6", 60))));
+            writer.start();
+            while (tx.execute(status -> queryFactory.selectFrom(member).where(member.username.eq("member6")).fetchCount()) == 0) {
+                Thread.sleep(10);
+            }
+            // 스냅샷에 member6 이 들어가고 이후 이벤트가 또 더해지면 두번 세게 된다 -> 적재하지 않는다
+            assertThat(countIndex.rebuild()).isFalse();
+        }
+        writer.join();
+
+        assertSameAsSql(condition(null, null, null));
+        assertSameAsSql(condition(null, 55, null));
+    }
+
+    @Test
+    public void usernameConditionFallsBackToSql() {
+        MemberSearchCondition condition = condition(null, null, null);
+        condition.setUsername("member1");
+        assertThat(countIndex.count(condition)).isEmpty();
+    }
+
+    @Test
+    public void uncommittedWritesFallBackToSql() {
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("member7", 70));
+            em.flush();
+            assertThat(countIndex.count(condition(null, null, null))).isEmpty();
+            status.setRollbackOnly();
+        });
+    }
+
+    private void assertSameAsSql(MemberSearchCondition condition) {
+        long expected = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(
+                        hasText(condition.getTeamName()) ? team.name.eq(condition.getTeamName()) : null,
+                        condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+                        condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null)
+                .fetchCount();
+        assertThat(countIndex.count(condition)).hasValue(expected);
+    }
+
+    private MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -0,0 +1,180 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.metrics.SqlStatementCounter;
+import study.queryDSL.repository.MemberBulkRepository;
+import study.queryDSL.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+class MemberReadModelTest {
+    // 사본은 커밋된 변경만 반영하므로 @Transactional 롤백 대신 직접 커밋하고 정리
+
+    static final String[] TEAM_NAMES = {"teamA", "teamB", "teamA", "teamC"}; // 같은 이름의 팀이 둘
+    static final String[] USERNAMES = {"member1", "member2", "member3", "dup"};
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+    @Autowired
+    MemberReadModel readModel;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (String name : TEAM_NAMES) {
+                Team team = new Team(name);
+                em.persist(team);
+                teams.add(team);
+            }
+            for (int i = 0; i < 60; i++) {
+                Team team = i % 7 == 0 ? null : teams.get(i % teams.size()); // 팀 없는 회원도 left join 결과에 포함
+                em.persist(new Member(USERNAMES[i % USERNAMES.length], i % 50, team));
+            }
+        });
+        readModel.bulkChanged(); // 다른 테스트의 사본을 버리고 새로 적재
+    }
+
+    @Test
+    public void sameResultsAsJpa() {
+        assertAllConditionsMatch();
+    }
+
+    @Test
+    public void followsCommittedChanges() {
+        assertAllConditionsMatch(); // 사본 적재
+
+        tx.executeWithoutResult(status -> {
+            List<Member> members = queryFactory.selectFrom(member).orderBy(member.id.asc()).fetch();
+            Team teamC = queryFactory.selectFrom(team).where(team.name.eq("teamC")).fetchOne();
+            members.get(1).setAge(45);
+            members.get(2).setTeam(teamC);
+            members.get(3).setUsername("member1");
+            em.remove(members.get(4));
+            em.persist(new Member("member2", 33, teamC));
+            queryFactory.selectFrom(team).where(team.name.eq("teamB")).fetchOne().setName("teamA"); // 이름 바꾸면 teamA 가 셋
+        });
+        assertAllConditionsMatch();
+
+        memberBulkRepository.bulkUpdate(new MemberSearchCondition(), update -> update.set(member.age, member.age.add(1)));
+        assertAllConditionsMatch(); // 벌크 후에는 다시 적재
+    }
+
+    @Test
+    public void answersWithoutSql() {
+        MemberSearchCondition condition = condition("member1", "teamA", 10, null);
+        memberRepository.searchInMemory(condition); // 적재
+
+        long before = SqlStatementCounter.current();
+        assertThat(memberRepository.searchInMemory(condition)).isNotEmpty();
+        assertThat(SqlStatementCounter.current() - before).isZero();
+    }
+
+    @Test
+    public void readsDoNotWaitForChangeHandlers() throws Exception {
+        MemberSearchCondition condition = condition(null, "teamA", 10, null);
+        memberRepository.searchInMemory(condition); // 적재, 스냅샷 생성
+
+        synchronized (readModel) { // 커밋 이벤트를 반영하는 중이어도 만들어 둔 스냅샷으로 답한다
+            CompletableFuture<Long> statements = CompletableFuture.supplyAsync(() -> {
+                long before = SqlStatementCounter.current();
+                assertThat(memberRepository.searchInMemory(condition)).isNotEmpty();
+                return SqlStatementCounter.current() - before;
+            });
+            assertThat(statements.get(5, TimeUnit.SECONDS)).isZero();
+        }
+    }
+
+    @Test
+    public void uncommittedChangesGoToDatabase() {
+        memberRepository.searchInMemory(new MemberSearchCondition()); // 적재
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("member9", 99));
+            // 사본에 없는 이 트랜잭션의 변경이 보여야 하므로 DB 로
+            assertThat(memberRepository.searchInMemory(condition("member9", null, null, null))).hasSize(1);
+            status.setRollbackOnly();
+        });
+        assertThat(memberRepository.searchInMemory(condition("member9", null, null, null))).isEmpty();
+    }
+
+    @Test
+    public void evaluatesPredicatesWithSqlNullSemantics() {
+        MemberTeamDto noTeam = new MemberTeamDto(1L, "member1", 10, null, null);
+        MemberTeamDto teamA = new MemberTeamDto(2L, "member2", 20, 1L, "teamA");
+
+        assertThat(MemberRowPredicate.compile(team.name.eq("teamA")).test(noTeam)).isFalse();
+        assertThat(MemberRowPredicate.compile(team.name.ne("teamA")).test(noTeam)).isFalse(); // null <> 'teamA' 는 unknown
+        assertThat(MemberRowPredicate.compile(team.name.eq("teamA").not()).test(noTeam)).isFalse();
+        assertThat(MemberRowPredicate.compile(team.name.isNull().or(member.age.gt(50))).test(noTeam)).isTrue();
+        assertThat(MemberRowPredicate.compile(member.team.id.in(1L, 2L).and(member.age.between(15, 25))).test(teamA)).isTrue();
+        assertThat(MemberRowPredicate.compile(null).test(noTeam)).isTrue();
+        assertThatThrownBy(() -> MemberRowPredicate.compile(member.username.like("member%")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // 16가지 조건 모양 x 여러 값에서 두 엔진의 결과가 같은지
+    private void assertAllConditionsMatch() {
+        String[] usernames = {null, "member1", "dup", "nobody"};
+        String[] teamNames = {null, "teamA", "teamC", "nobody"};
+        Integer[] ageGoes = {null, 0, 25, 49};
+        Integer[] ageLoes = {null, 10, 30, -1};
+        for (String username : usernames) {
+            for (String teamName : teamNames) {
+                for (Integer ageGoe : ageGoes) {
+                    for (Integer ageLoe : ageLoes) {
+                        MemberSearchCondition condition = condition(username, teamName, ageGoe, ageLoe);
+                        List<MemberTeamDto> expected = new ArrayList<>(memberRepository.search(condition));
+                        expected.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+                        assertThat(memberRepository.searchInMemory(condition)).as(condition.toString())
+                                .containsExactlyElementsOf(expected);
+                    }
+                }
+            }
+        }
+    }
+
+    private static MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
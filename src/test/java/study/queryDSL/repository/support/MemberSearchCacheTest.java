@@ -0,0 +1,221 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.metrics.SqlStatementCounter;
+import study.queryDSL.repository.MemberBulkRepository;
+import study.queryDSL.repository.MemberJpaRepository;
+import study.queryDSL.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+class MemberSearchCacheTest {
+    // 캐시는 커밋된 변경으로만 지워지므로 @Transactional 롤백 대신 직접 커밋하고 정리
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+    @Autowired
+    TeamIdResolver teamIdResolver;
+    @Autowired
+    MemberSearchCoalescer coalescer;
+    @Autowired
+    MemberSearchCache cache;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+        });
+        cache.bulkChanged(); // 다른 테스트가 남긴 항목 비우기
+    }
+
+    @Test
+    public void hitIssuesNoSql() {
+        MemberSearchCondition condition = condition(null, 15, null);
+        List<MemberTeamDto> first = memberRepository.search(condition);
+
+        MemberSearchCondition blank = condition(null, 15, null);
+        blank.setUsername(""); // 빈 문자열은 조건 없음과 같은 키
+        long hits = cache.getHits();
+        long before = SqlStatementCounter.current();
+        assertThat(memberRepository.search(blank)).isSameAs(first);
+        assertThat(memberJpaRepository.search(condition)).isSameAs(first); // 같은 검색이면 저장소가 달라도 공유
+        assertThat(SqlStatementCounter.current() - before).isZero();
+        assertThat(cache.getHits() - hits).isEqualTo(2);
+        assertThatThrownBy(() -> first.clear()).isInstanceOf(UnsupportedOperationException.class);
+
+        // 페이지마다 다른 키
+        Page<MemberTeamDto> page0 = memberRepository.searchPageSimple(condition, PageRequest.of(0, 2));
+        Page<MemberTeamDto> page1 = memberRepository.searchPageSimple(condition, PageRequest.of(1, 2));
+        assertThat(page0.getContent()).hasSize(2);
+        assertThat(page1.getContent()).hasSize(1);
+        assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(0, 2))).isSameAs(page0);
+    }
+
+    @Test
+    public void memberChangeInvalidatesOnlyMatchingEntries() {
+        MemberSearchCondition teamA = condition("teamA", null, null);
+        MemberSearchCondition old = condition(null, 35, null);
+        memberRepository.search(teamA);
+        List<MemberTeamDto> olds = memberRepository.search(old);
+
+        tx.executeWithoutResult(status -> {
+            Team a = queryFactory.selectFrom(team).where(team.name.eq("teamA")).fetchOne();
+            em.persist(new Member("member5", 15, a));
+        });
+
+        assertThat(memberRepository.search(old)).isSameAs(olds); // 나이 조건에 안 맞는 회원이라 그대로
+        assertThat(memberRepository.search(teamA)).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2", "member5");
+
+        tx.executeWithoutResult(status -> queryFactory.selectFrom(member)
+                .where(member.username.eq("member1")).fetchOne().setAge(50)); // 변경 후 값이 조건에 맞으면 지운다
+        assertThat(memberRepository.search(old)).extracting("username").containsExactlyInAnyOrder("member1", "member4");
+    }
+
+    @Test
+    public void teamChangeInvalidatesByNameAndResult() {
+        MemberSearchCondition old = condition(null, 35, null); // 결과에 teamB 회원
+        MemberSearchCondition teamC = condition("teamC", null, null); // 아직 없는 팀
+        memberRepository.search(old);
+        assertThat(memberRepository.search(teamC)).isEmpty();
+
+        tx.executeWithoutResult(status -> queryFactory.selectFrom(team)
+                .where(team.name.eq("teamB")).fetchOne().setName("teamC"));
+
+        assertThat(memberRepository.search(old)).extracting("teamName").containsExactly("teamC");
+        assertThat(memberRepository.search(teamC)).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+    }
+
+    @Test
+    public void bulkClauseClearsAll() {
+        memberRepository.search(condition(null, null, null));
+        memberRepository.search(condition("teamA", null, null));
+        long invalidations = cache.getInvalidations();
+
+        memberBulkRepository.bulkUpdate(condition("teamB", null, null), update -> update.set(member.age, member.age.add(1)));
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getInvalidations() - invalidations).isEqualTo(2);
+        assertThat(memberRepository.search(condition(null, null, null))).extracting("age").containsExactlyInAnyOrder(10, 20, 31, 41);
+    }
+
+    @Test
+    public void uncommittedChangesBypassCache() {
+        memberRepository.search(condition(null, null, null));
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("member5", 50));
+            // 이 트랜잭션의 변경이 보여야 하므로 캐시를 거치지 않는다
+            assertThat(memberRepository.search(condition(null, null, null))).hasSize(5);
+            assertThat(memberRepository.search(condition(null, 45, null))).hasSize(1);
+            status.setRollbackOnly();
+        });
+
+        assertThat(cache.size()).isEqualTo(1); // 트랜잭션 안의 결과는 넣지 않았다
+        assertThat(memberRepository.search(condition(null, null, null))).hasSize(4);
+    }
+
+    @Test
+    public void boundedByEntriesAndBytes() {
+        MemberSearchCache small = new MemberSearchCache(em, teamIdResolver, coalescer, true, 2, DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        small.get(key(1), () -> rows(1));
+        small.get(key(2), () -> rows(1));
+        small.get(key(1), () -> rows(1)); // 1 을 최근에 쓴 것으로
+        small.get(key(3), () -> rows(1));
+
+        assertThat(small.size()).isEqualTo(2);
+        assertThat(small.getEvictions()).isEqualTo(1);
+        assertThat(small.get(key(1), () -> rows(1))).hasSize(1);
+        assertThat(small.getHits()).isEqualTo(2); // 2 는 밀려나서 다시 읽는다
+        small.get(key(2), () -> rows(1));
+        assertThat(small.getMisses()).isEqualTo(4);
+
+        long oneRow = MemberSearchCache.estimateBytes(rows(1));
+        long hundredRows = MemberSearchCache.estimateBytes(rows(100));
+        MemberSearchCache bytes = new MemberSearchCache(em, teamIdResolver, coalescer, true, 100,
+                DataSize.ofBytes(hundredRows + oneRow), Duration.ofMinutes(1));
+        bytes.get(key(1), () -> rows(1));
+        bytes.get(key(2), () -> rows(1));
+        bytes.get(key(3), () -> rows(100));
+        assertThat(bytes.size()).isEqualTo(2);
+        assertThat(bytes.bytes()).isEqualTo(hundredRows + oneRow);
+        bytes.get(key(4), () -> rows(1000)); // 한 항목이 한도보다 크면 넣지 않는다
+        assertThat(bytes.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void expiresAfterTtl() throws InterruptedException {
+        MemberSearchCache shortLived = new MemberSearchCache(em, teamIdResolver, coalescer, true, 10, DataSize.ofMegabytes(1), Duration.ofMillis(10));
+        shortLived.get(key(1), () -> rows(1));
+        Thread.sleep(20);
+        shortLived.get(key(1), () -> rows(1));
+
+        assertThat(shortLived.getExpirations()).isEqualTo(1);
+        assertThat(shortLived.getHits()).isZero();
+    }
+
+    private static MemberSearchCache.Key key(int age) {
+        return MemberSearchCache.Key.of("search", condition(null, age, null));
+    }
+
+    private static List<MemberTeamDto> rows(int count) {
+        MemberTeamDto[] rows = new MemberTeamDto[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new MemberTeamDto((long) i, "member" + i, i, 1L, "teamA");
+        }
+        return List.of(rows);
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
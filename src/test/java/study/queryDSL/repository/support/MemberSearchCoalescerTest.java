@@ -0,0 +1,171 @@
+package study.queryDSL.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import study.queryDSL.dto.MemberSearchCondition;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class MemberSearchCoalescerTest {
+
+    static final int CALLERS = 8;
+
+    @Autowired
+    EntityManager em;
+
+    MemberSearchCoalescer coalescer;
+    ExecutorService executor;
+
+    @BeforeEach
+    public void before() {
+        coalescer = new MemberSearchCoalescer(em, Duration.ofSeconds(5));
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<Future<List<String>>> results = callConcurrently(key("teamA", 0), () -> {
+            loads.incrementAndGet();
+            await(release);
+            return List.of("member1");
+        });
+        waitUntilDeduplicated(CALLERS - 1);
+        release.countDown();
+
+        for (Future<List<String>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly("member1");
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(coalescer.getExecutions()).isEqualTo(1);
+        assertThat(coalescer.getDeduplicated()).isEqualTo(CALLERS - 1);
+        assertThat(coalescer.inFlight()).isZero();
+
+        coalescer.execute(key("teamA", 0), () -> List.of("member1")); // 끝난 실행에는 붙지 않는다
+        assertThat(coalescer.getExecutions()).isEqualTo(2);
+    }
+
+    @Test
+    public void differentPagesDoNotShare() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> page0 = executor.submit(() -> coalescer.execute(key("teamA", 0), () -> {
+            await(release);
+            return "page0";
+        }));
+        waitUntilInFlight(1);
+
+        assertThat(coalescer.execute(key("teamA", 1), () -> "page1")).isEqualTo("page1");
+        release.countDown();
+        assertThat(page0.get(5, TimeUnit.SECONDS)).isEqualTo("page0");
+        assertThat(coalescer.getDeduplicated()).isZero();
+    }
+
+    @Test
+    public void waiterRunsItselfAfterTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slow = executor.submit(() -> coalescer.execute(key("teamA", 0), () -> {
+            await(release);
+            return "slow";
+        }));
+        waitUntilInFlight(1);
+
+        assertThat(coalescer.execute(key("teamA", 0), Duration.ofMillis(50), () -> "own")).isEqualTo("own");
+        assertThat(coalescer.getTimeouts()).isEqualTo(1);
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+    }
+
+    @Test
+    public void failureReachesWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> results = callConcurrently(key("teamA", 0), () -> {
+            await(release);
+            throw new IllegalArgumentException("bad condition");
+        });
+        waitUntilDeduplicated(CALLERS - 1);
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    @Test
+    public void committedChangeStartsNewExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> before = executor.submit(() -> coalescer.execute(key("teamA", 0), () -> {
+            await(release);
+            return "before change";
+        }));
+        waitUntilInFlight(1);
+
+        coalescer.bulkChanged(); // 변경 후에 온 호출은 변경 전에 시작한 실행을 받지 않는다
+        assertThat(coalescer.execute(key("teamA", 0), () -> "after change")).isEqualTo("after change");
+        release.countDown();
+        assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo("before change");
+        assertThat(coalescer.getDeduplicated()).isZero();
+    }
+
+    private <T> List<Future<T>> callConcurrently(MemberSearchCache.Key key, Supplier<T> loader) {
+        List<Future<T>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> coalescer.execute(key, loader)));
+        }
+        return results;
+    }
+
+    private void waitUntilDeduplicated(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.getDeduplicated() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(coalescer.getDeduplicated()).isEqualTo(count);
+    }
+
+    private void waitUntilInFlight(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.inFlight() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(coalescer.inFlight()).isEqualTo(count);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MemberSearchCache.Key key(String teamName, int page) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return MemberSearchCache.Key.of("searchPage:EXACT", condition, PageRequest.of(page, 20));
+    }
+}
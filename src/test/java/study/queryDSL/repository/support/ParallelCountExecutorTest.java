@@ -0,0 +1,97 @@
+package study.queryDSL.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ParallelCountExecutorTest {
+
+    @Autowired
+    ParallelCountExecutor countExecutor;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void countsOnAnotherThread() {
+        AtomicReference<String> countThread = new AtomicReference<>();
+        CountDownLatch counting = new CountDownLatch(1);
+        Page<String> page = countExecutor.getPage(PageRequest.of(0, 2),
+                () -> {
+                    awaitQuietly(counting); // 카운트가 시작된 뒤에 컨텐츠 조회가 끝나도록
+                    return List.of("a", "b");
+                },
+                () -> {
+                    countThread.set(Thread.currentThread().getName());
+                    counting.countDown();
+                    return 10;
+                });
+
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(countThread.get()).startsWith("page-count-");
+    }
+
+    @Test
+    public void countsInCallerWithUncommittedChanges() {
+        AtomicReference<String> countThread = new AtomicReference<>();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            em.persist(new Team("teamA")); // 다른 커넥션에서는 보이지 않는 변경
+            countExecutor.getPage(PageRequest.of(0, 2),
+                    () -> List.of("a", "b"),
+                    () -> {
+                        countThread.set(Thread.currentThread().getName());
+                        return 10;
+                    });
+            status.setRollbackOnly();
+        });
+
+        assertThat(countThread.get()).isEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void doesNotWaitForUnneededCount() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Page<String> page = countExecutor.getPage(PageRequest.of(0, 10),
+                () -> {
+                    awaitQuietly(started);
+                    return List.of("a", "b"); // 첫 페이지가 다 안찼으므로 total = 2
+                },
+                () -> {
+                    started.countDown();
+                    awaitQuietly(release); // 느린 카운트 쿼리
+                    return 2;
+                });
+        long elapsed = System.nanoTime() - start;
+        release.countDown();
+
+        assertThat(elapsed).isLessThan(TimeUnit.SECONDS.toNanos(4)); // 카운트를 기다렸다면 5초
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
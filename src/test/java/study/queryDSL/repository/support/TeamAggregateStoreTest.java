@@ -0,0 +1,216 @@
+package study.queryDSL.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.controller.StatisticsController;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.TeamStatsDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.metrics.SqlStatementCounter;
+import study.queryDSL.repository.MemberBulkRepository;
+import study.queryDSL.repository.event.MemberSnapshot;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.queryDSL.entity.QMember.member;
+import static study.queryDSL.entity.QTeam.team;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+class TeamAggregateStoreTest {
+    // 커밋된 변경만 반영하므로 @Transactional 롤백 대신 직접 커밋하고 정리
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+    @Autowired
+    TeamAggregateStore store;
+    @Autowired
+    StatisticsController statisticsController;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            Team otherA = new Team("teamA"); // 이름이 같은 팀
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(otherA);
+            em.persist(new Team("teamC")); // 회원 없는 팀
+
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            em.persist(new Member("member5", 50, otherA));
+            em.persist(new Member("member6", 60)); // 팀 없음
+        });
+        store.bulkChanged(); // 다른 테스트의 값을 버리고 새로 적재
+    }
+
+    @Test
+    public void sameAsSqlAggregates() {
+        assertSameAsSql();
+
+        TeamStatsDto all = store.all(); // QuerydslBasicTest.aggregation 과 같은 값
+        assertThat(all.getCount()).isEqualTo(6);
+        assertThat(all.getAgeSum()).isEqualTo(210);
+        assertThat(all.getAgeAvg()).isEqualTo(35);
+        assertThat(all.getAgeMin()).isEqualTo(10);
+        assertThat(all.getAgeMax()).isEqualTo(60);
+
+        TeamStatsDto teamA = store.teamName("teamA").orElseThrow(); // groupBy(team.name), 같은 이름 두 팀을 합친 값
+        assertThat(teamA.getCount()).isEqualTo(3);
+        assertThat(teamA.getAgeAvg()).isEqualTo(80 / 3.0);
+        assertThat(store.teamName("teamC").orElseThrow().getAgeAvg()).isNull();
+        assertThat(store.teamName("nobody")).isEmpty();
+    }
+
+    @Test
+    public void readsWithoutSql() {
+        Long teamB = teamId("teamB");
+        store.teams(); // 적재
+
+        long before = SqlStatementCounter.current();
+        assertThat(store.team(teamB).orElseThrow().getAgeMax()).isEqualTo(40);
+        store.teams();
+        store.all();
+        assertThat(SqlStatementCounter.current() - before).isZero();
+    }
+
+    @Test
+    public void followsCommittedChanges() {
+        store.teams(); // 적재
+        tx.executeWithoutResult(status -> {
+            Member member1 = findMember("member1");
+            Member member3 = findMember("member3");
+            Team teamC = queryFactory.selectFrom(team).where(team.name.eq("teamC")).fetchOne();
+            member1.setAge(70); // teamA 의 최소였던 나이가 바뀐다
+            member3.setTeam(teamC);
+            em.remove(findMember("member4")); // teamB 의 최대
+            em.persist(new Member("member7", 5, teamC));
+            queryFactory.selectFrom(team).where(team.name.eq("teamB")).fetchOne().setName("teamD");
+        });
+        assertSameAsSql();
+        assertThat(store.teamName("teamB")).isEmpty();
+        assertThat(store.teamName("teamD").orElseThrow().getCount()).isZero();
+
+        memberBulkRepository.bulkUpdate(new MemberSearchCondition(), update -> update.set(member.age, member.age.add(1)));
+        assertSameAsSql(); // 벌크 후에는 다시 적재
+    }
+
+    @Test
+    public void reconcileRepairsDrift() {
+        store.teams(); // 적재
+        assertThat(store.reconcile()).isZero();
+
+        Long teamA = teamId("teamA");
+        store.memberChanged(null, new MemberSnapshot(-1L, "ghost", 99, teamA)); // 유실되거나 잘못 들어온 이벤트
+        assertThat(store.team(teamA).orElseThrow().getAgeMax()).isEqualTo(99);
+
+        long corrections = store.getCorrections();
+        assertThat(store.reconcile()).isEqualTo(1);
+        assertThat(store.getCorrections() - corrections).isEqualTo(1);
+        assertSameAsSql();
+    }
+
+    @Test
+    public void reconcileRightAfterWrite() {
+        store.teams(); // 적재
+        Long teamB = teamId("teamB");
+        tx.executeWithoutResult(status -> em.persist(new Member("member7", 70, em.find(Team.class, teamB))));
+
+        // 커밋 이벤트로 이미 반영했으므로 primary 에서 다시 집계해도 고칠 것이 없다
+        long corrections = store.getCorrections();
+        assertThat(store.reconcile()).isZero();
+        assertThat(store.getCorrections()).isEqualTo(corrections);
+        assertThat(store.team(teamB).orElseThrow().getAgeMax()).isEqualTo(70);
+        assertSameAsSql();
+    }
+
+    @Test
+    public void commitInterleavedWithReconcile() throws Exception {
+        store.teams(); // 적재
+        long corrections = store.getCorrections();
+        Thread writer;
+        synchronized (store) { // 커밋은 DB 에 보이지만 집계로의 이벤트 전달은 여기서 막힌다
+            writer = new Thread(() -> tx.executeWithoutResult(status -> em.persist(new Member("member7", 70))));
+            writer.start();
+            while (tx.execute(status -> queryFactory.selectFrom(member).where(member.username.eq("member7")).fetchCount()) == 0) {
+                Thread.sleep(10);
+            }
+            // 아직 반영 전인 커밋을 어긋남으로 보고 고치면 이후 이벤트가 또 더해져 두번 세게 된다 -> 이번 회차는 건너뛴다
+            assertThat(store.reconcile()).isEqualTo(-1);
+        }
+        writer.join();
+
+        assertThat(store.getCorrections()).isEqualTo(corrections);
+        assertSameAsSql();
+        assertThat(store.reconcile()).isZero();
+    }
+
+    @Test
+    public void endpoints() {
+        // MockMvc 용 컨텍스트를 따로 띄우면 ddl-auto 로 시퀀스가 초기화되므로 컨트롤러를 직접 호출
+        TeamStatsDto teamB = statisticsController.teamStats(teamId("teamB")).getBody();
+        assertThat(teamB.getTeamName()).isEqualTo("teamB");
+        assertThat(teamB.getCount()).isEqualTo(2);
+        assertThat(teamB.getAgeAvg()).isEqualTo(35.0);
+        assertThat(statisticsController.teamStats(-1L).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(statisticsController.teamStatsByName("teamA").getBody().getCount()).isEqualTo(3);
+        assertThat(statisticsController.teamStats()).extracting("teamName").containsExactly("teamA", "teamA", "teamB", "teamC");
+        assertThat(statisticsController.memberStats().getCount()).isEqualTo(6);
+    }
+
+    // 팀마다 SQL group by 와 같은지, 회원 없는 팀은 count 0
+    private void assertSameAsSql() {
+        List<Tuple> rows = queryFactory
+                .select(team.id, team.name, member.count(), member.age.sum(), member.age.min(), member.age.max())
+                .from(team)
+                .leftJoin(team.members, member)
+                .groupBy(team.id, team.name)
+                .fetch();
+        assertThat(store.teams()).hasSize(rows.size());
+        for (Tuple row : rows) {
+            TeamStatsDto stats = store.team(row.get(team.id)).orElseThrow();
+            assertThat(stats.getTeamName()).isEqualTo(row.get(team.name));
+            assertThat(stats.getCount()).isEqualTo(row.get(member.count()));
+            Integer sum = row.get(member.age.sum());
+            assertThat(stats.getAgeSum()).isEqualTo(sum == null ? 0 : sum);
+            assertThat(stats.getAgeMin()).isEqualTo(row.get(member.age.min()));
+            assertThat(stats.getAgeMax()).isEqualTo(row.get(member.age.max()));
+        }
+        Tuple total = queryFactory.select(member.count(), member.age.sum()).from(member).fetchOne();
+        assertThat(store.all().getCount()).isEqualTo(total.get(member.count()));
+        assertThat(store.all().getAgeSum()).isEqualTo((long) total.get(member.age.sum()));
+    }
+
+    private Member findMember(String username) {
+        return queryFactory.selectFrom(member).where(member.username.eq(username)).fetchOne();
+    }
+
+    private Long teamId(String name) {
+        return queryFactory.select(team.id).from(team).where(team.name.eq(name)).fetchFirst();
+    }
+}
@@ -0,0 +1,112 @@
+package study.queryDSL.repository.support;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.queryDSL.CommittedDataCleanup;
+import study.queryDSL.dto.MemberSearchCondition;
+import study.queryDSL.dto.MemberTeamDto;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(CommittedDataCleanup.class)
+class TeamIdResolverTest {
+    // 캐시는 커밋된 변경만 반영하므로 @Transactional 롤백 대신 직접 커밋하고 정리
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    TeamIdResolver teamIdResolver;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate tx;
+    Long teamAId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        teamAId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            return teamA.getId();
+        });
+    }
+
+    @Test
+    public void resolveAndSearch() {
+        assertThat(teamIdResolver.resolve("teamA")).containsExactly(teamAId);
+
+        List<String> usernames = tx.execute(status -> {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamA");
+            return memberJpaRepository.search(condition).stream()
+                    .map(MemberTeamDto::getUsername)
+                    .collect(Collectors.toList());
+        });
+        assertThat(usernames).containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @Test
+    public void unknownTeamSkipsQuery() {
+        assertThat(teamIdResolver.resolve("teamX")).isEmpty(); // 없는 이름도 캐시
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long before = statistics.getPrepareStatementCount();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamX");
+        assertThat(memberJpaRepository.search(condition)).isEmpty();
+        assertThat(memberJpaRepository.streamSearch(condition, dto -> { })).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(before);
+    }
+
+    @Test
+    public void followsCommittedChanges() {
+        assertThat(teamIdResolver.resolve("teamX")).isEmpty();
+
+        Long teamXId = tx.execute(status -> {
+            Team teamX = new Team("teamX");
+            em.persist(teamX);
+            return teamX.getId();
+        });
+        assertThat(teamIdResolver.resolve("teamX")).containsExactly(teamXId);
+
+        tx.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("teamB"));
+        assertThat(teamIdResolver.resolve("teamA")).isEmpty();
+        assertThat(teamIdResolver.resolve("teamB")).containsExactly(teamAId);
+    }
+
+    @Test
+    public void seesUncommittedTeamInOwnTransaction() {
+        assertThat(teamIdResolver.resolve("teamY")).isEmpty();
+
+        tx.executeWithoutResult(status -> {
+            Team teamY = new Team("teamY");
+            em.persist(teamY);
+            assertThat(teamIdResolver.resolve("teamY")).containsExactly(teamY.getId());
+            status.setRollbackOnly();
+        });
+        assertThat(teamIdResolver.resolve("teamY")).isEmpty(); // 롤백된 팀은 캐시에 남지 않는다
+    }
+}
@@ -0,0 +1,99 @@
+package study.queryDSL.repository.support;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.queryDSL.entity.Member;
+import study.queryDSL.entity.Team;
+import study.queryDSL.metrics.SqlStatementCounter;
+import study.queryDSL.repository.MemberJpaRepository;
+import study.queryDSL.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TeamPreloaderTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void batchSizeLoadsPendingProxiesAndCollectionsTogether() {
+        persistTeams(5, 2);
+        List<Member> members = memberJpaRepository.findAll_Querydsl();
+
+        // @BatchSize 가 없으면 팀마다 한번씩 5번
+        long before = SqlStatementCounter.current();
+        members.forEach(m -> m.getTeam().getName());
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(1);
+
+        before = SqlStatementCounter.current();
+        members.forEach(m -> m.getTeam().getMembers().size());
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(1);
+    }
+
+    @Test
+    public void preloadInitializesTeamsAndMembers() {
+        persistTeams(5, 2);
+        List<Member> members = memberRepository.findAll();
+
+        long before = SqlStatementCounter.current();
+        memberRepository.preload(members);
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(1);
+        assertThat(members).allMatch(m -> Hibernate.isInitialized(m.getTeam()));
+        assertThat(members).allMatch(m -> Hibernate.isInitialized(m.getTeam().getMembers()));
+
+        before = SqlStatementCounter.current();
+        members.forEach(m -> m.getTeam().getMembers().forEach(Member::getUsername));
+        assertThat(SqlStatementCounter.current() - before).isZero();
+        assertThat(members.get(0).getTeam().getMembers()).hasSize(2);
+    }
+
+    @Test
+    public void preloadQueriesOncePerBatch() {
+        persistTeams(TeamPreloader.BATCH_SIZE + 50, 1);
+        List<Member> members = memberJpaRepository.findAll_Querydsl();
+
+        long before = SqlStatementCounter.current();
+        memberJpaRepository.preload(members);
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(2);
+
+        before = SqlStatementCounter.current();
+        memberJpaRepository.preload(members); // 이미 모두 초기화됨
+        assertThat(SqlStatementCounter.current() - before).isZero();
+    }
+
+    @Test
+    public void preloadFillsCollectionsOfLoadedTeams() {
+        persistTeams(3, 2);
+        List<Member> members = memberJpaRepository.findAll_Querydsl();
+        members.forEach(m -> Hibernate.initialize(m.getTeam())); // 팀은 읽었지만 members 는 아직
+
+        long before = SqlStatementCounter.current();
+        memberJpaRepository.preload(members);
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(1);
+        assertThat(members).allMatch(m -> Hibernate.isInitialized(m.getTeam().getMembers()));
+    }
+
+    private void persistTeams(int teams, int membersPerTeam) {
+        for (int i = 0; i < teams; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            for (int j = 0; j < membersPerTeam; j++) {
+                em.persist(new Member("member" + i + "-" + j, j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+}